@@ -24,15 +24,21 @@
 package de.andreasgiemza.mangadownloader;
 
 import de.andreasgiemza.mangadownloader.data.Chapter;
+import de.andreasgiemza.mangadownloader.data.ChapterListCache;
 import de.andreasgiemza.mangadownloader.data.Download;
-import de.andreasgiemza.mangadownloader.data.Image;
+import de.andreasgiemza.mangadownloader.data.LibraryIndex;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.data.MangaList;
+import de.andreasgiemza.mangadownloader.data.gui.download.DownloadProgressPublisher;
 import de.andreasgiemza.mangadownloader.data.gui.download.DownloadTableModel;
+import de.andreasgiemza.mangadownloader.download.DownloadJournal;
+import de.andreasgiemza.mangadownloader.download.DownloadListener;
+import de.andreasgiemza.mangadownloader.download.DownloadScheduler;
 import de.andreasgiemza.mangadownloader.gui.chapter.ChapterCheckBoxItemListener;
 import de.andreasgiemza.mangadownloader.gui.chapter.ChapterListSearchDocumentListener;
 import de.andreasgiemza.mangadownloader.gui.chapter.ChapterTableCellRenderer;
 import de.andreasgiemza.mangadownloader.gui.chapter.ChapterTableModel;
+import de.andreasgiemza.mangadownloader.gui.dialogs.GlobalSearch;
 import de.andreasgiemza.mangadownloader.gui.dialogs.Loading;
 import de.andreasgiemza.mangadownloader.gui.dialogs.SelectSite;
 import de.andreasgiemza.mangadownloader.gui.manga.MangaListSearchDocumentListener;
@@ -46,17 +52,15 @@ import de.andreasgiemza.mangadownloader.sites.Site;
 import de.andreasgiemza.mangadownloader.sites.SiteHelper;
 import java.awt.Toolkit;
 import java.awt.event.WindowEvent;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Set;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableRowSorter;
 
@@ -67,16 +71,17 @@ import javax.swing.table.TableRowSorter;
 public class MangaDownloader extends javax.swing.JFrame {
 
     // Tables
-    private final List<Manga> mangas = new LinkedList<>();
-    private final MangaTableModel mangasTableModel = new MangaTableModel(mangas);
+    private final MangaTableModel mangasTableModel = new MangaTableModel(Collections.<Manga>emptyList());
     private final List<Chapter> chapters = new LinkedList<>();
     private final ChapterTableModel chaptersTableModel = new ChapterTableModel(chapters);
     private final List<Download> downloads = new LinkedList<>();
     private final DownloadTableModel downloadsTableModel = new DownloadTableModel(downloads);
+    private final DownloadProgressPublisher downloadProgressPublisher = new DownloadProgressPublisher(downloads, downloadsTableModel);
 
     // Download
     private int id = 0;
-    private volatile boolean interrupted = false;
+    private DownloadScheduler downloadScheduler;
+    private final DownloadJournal downloadJournal = new DownloadJournal(Options.INSTANCE.getDownloadJournal());
 
     // Site
     private Site selectedSite;
@@ -86,6 +91,37 @@ public class MangaDownloader extends javax.swing.JFrame {
 
     private final MangaDownloader mangaDownloader = this;
 
+    // Chapter lists which changed while their cached version was shown
+    private final ChapterListCache.RefreshListener chapterListRefreshListener = new ChapterListCache.RefreshListener() {
+
+        @Override
+        public void chapterListRefreshed(final Manga manga, final List<Chapter> refreshedChapters) {
+            SwingUtilities.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (manga != lastSelectedManga) {
+                        return;
+                    }
+
+                    Set<String> selectedLinks = new HashSet<>();
+                    for (Chapter chapter : chapters) {
+                        if (chapter.isDownload()) {
+                            selectedLinks.add(chapter.getLink());
+                        }
+                    }
+
+                    for (Chapter chapter : refreshedChapters) {
+                        chapter.setDownload(selectedLinks.contains(chapter.getLink()));
+                    }
+
+                    chapters.clear();
+                    showChapters(manga, refreshedChapters);
+                }
+            });
+        }
+    };
+
     /**
      * Creates new form Gui
      */
@@ -105,6 +141,19 @@ public class MangaDownloader extends javax.swing.JFrame {
         mangaListTable.getSelectionModel().addListSelectionListener(
                 new MangaListSelectionListener(this, mangaListTable));
         mangaListTable.setDefaultRenderer(String.class, new MangaTableCellRenderer());
+        LibraryIndex.INSTANCE.addChangeListener(new LibraryIndex.ChangeListener() {
+
+            @Override
+            public void libraryChanged() {
+                SwingUtilities.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        mangaListTable.repaint();
+                    }
+                });
+            }
+        });
 
         // Setup Chapter List Table
         chapterListSearchTextField.getDocument().addDocumentListener(
@@ -135,13 +184,16 @@ public class MangaDownloader extends javax.swing.JFrame {
                 super.windowClosing(e);
 
                 if (startDownloadButton.isEnabled()) {
+                    downloadJournal.close();
+                    dispose();
+                } else if (JOptionPane.showConfirmDialog(
+                        mangaDownloader,
+                        "Downloads are still running. They will be in the download list again on the next start.\nClose anyway?",
+                        "Close",
+                        JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                    downloadScheduler.stop();
+                    downloadJournal.close();
                     dispose();
-                } else {
-                    JOptionPane.showMessageDialog(
-                            mangaDownloader,
-                            "Can't close while still downloading!",
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
                 }
             }
         });
@@ -155,6 +207,13 @@ public class MangaDownloader extends javax.swing.JFrame {
         // Create options dir when not there
         Options.INSTANCE.createOptionsDir();
 
+        // Restore the download list of the last session
+        for (Download download : downloadJournal.load()) {
+            downloads.add(download);
+            id = Math.max(id, download.getId() + 1);
+        }
+        downloadsTableModel.fireTableDataChanged();
+
         // Deactivate certificate check
         JsoupHelper.deactivateCertificateCheck();
     }
@@ -181,35 +240,46 @@ public class MangaDownloader extends javax.swing.JFrame {
 
             @Override
             public void run() {
-                mangas.addAll(MangaList.load(selectedSite));
-
-                mangasTableModel.fireTableDataChanged();
+                mangasTableModel.setMangas(MangaList.load(selectedSite));
 
                 loading.dispose();
             }
         });
     }
 
+    /**
+     * Switches to the site and shows the chapters of the manga, e.g. for a
+     * hit of the search over all sites.
+     */
+    public void showManga(Site site, Manga manga) {
+        loadManga(site);
+
+        mangaListSearchTextField.setText(manga.getTitle());
+        mangaSelected(manga);
+    }
+
     public void mangaSelected(final Manga selectedManga) {
         if (selectedManga != lastSelectedManga) {
             this.selectedManga = selectedManga;
             resetChapterPanel();
 
+            List<Chapter> cachedChapters = ChapterListCache.INSTANCE.get(selectedSite, selectedManga);
+
+            if (cachedChapters != null) {
+                showChapters(selectedManga, cachedChapters);
+                ChapterListCache.INSTANCE.revalidate(selectedSite, selectedManga, chapterListRefreshListener);
+                return;
+            }
+
             final Loading loading = new Loading(this, true);
             loading.startRunnable(new Runnable() {
 
                 @Override
                 public void run() {
-                    try {
-                        chapters.addAll(selectedSite.getChapterList(selectedManga));
+                    List<Chapter> loadedChapters;
 
-                        for (Chapter chapter : chapters) {
-                            Path file = FilenameHelper.buildChapterPath(selectedManga, chapter);
-
-                            if (Files.exists(file)) {
-                                chapter.setAlreadyDownloaded(true);
-                            }
-                        }
+                    try {
+                        loadedChapters = ChapterListCache.INSTANCE.load(selectedSite, selectedManga);
                     } catch (Exception ex) {
                         JOptionPane.showMessageDialog(
                                 mangaDownloader,
@@ -223,11 +293,7 @@ public class MangaDownloader extends javax.swing.JFrame {
                         return;
                     }
 
-                    chaptersTableModel.fireTableDataChanged();
-
-                    downloadButton.setEnabled(true);
-
-                    lastSelectedManga = selectedManga;
+                    showChapters(selectedManga, loadedChapters);
 
                     loading.dispose();
                 }
@@ -235,6 +301,23 @@ public class MangaDownloader extends javax.swing.JFrame {
         }
     }
 
+    private void showChapters(Manga manga, List<Chapter> mangaChapters) {
+        Set<String> chapterFiles = LibraryIndex.INSTANCE.getChapterFiles(manga);
+
+        for (Chapter chapter : mangaChapters) {
+            if (chapterFiles.contains(FilenameHelper.buildChapterFileName(chapter))) {
+                chapter.setAlreadyDownloaded(true);
+            }
+        }
+
+        chapters.addAll(mangaChapters);
+        chaptersTableModel.fireTableDataChanged();
+
+        downloadButton.setEnabled(true);
+
+        lastSelectedManga = manga;
+    }
+
     public void mangaSearchChanged() {
         mangaListTable.clearSelection();
         downloadButton.setEnabled(false);
@@ -256,8 +339,7 @@ public class MangaDownloader extends javax.swing.JFrame {
     }
 
     private void resetMangaPanel() {
-        mangas.clear();
-        mangasTableModel.fireTableDataChanged();
+        mangasTableModel.setMangas(Collections.<Manga>emptyList());
         mangaListSearchTextField.setText("");
         mangaListTable.clearSelection();
         downloadButton.setEnabled(false);
@@ -289,6 +371,7 @@ public class MangaDownloader extends javax.swing.JFrame {
         sitePanel = new javax.swing.JPanel();
         selectedSiteLabel = new javax.swing.JTextField();
         selectSiteButton = new javax.swing.JButton();
+        searchAllButton = new javax.swing.JButton();
         splitPane = new javax.swing.JSplitPane();
         mangaChapterPanel = new javax.swing.JPanel();
         mangaListPanel = new javax.swing.JPanel();
@@ -356,6 +439,13 @@ public class MangaDownloader extends javax.swing.JFrame {
             }
         });
 
+        searchAllButton.setText("Search all");
+        searchAllButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                searchAllButtonActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout sitePanelLayout = new javax.swing.GroupLayout(sitePanel);
         sitePanel.setLayout(sitePanelLayout);
         sitePanelLayout.setHorizontalGroup(
@@ -363,13 +453,16 @@ public class MangaDownloader extends javax.swing.JFrame {
             .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, sitePanelLayout.createSequentialGroup()
                 .addComponent(selectedSiteLabel)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addComponent(selectSiteButton, javax.swing.GroupLayout.PREFERRED_SIZE, 90, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addComponent(selectSiteButton, javax.swing.GroupLayout.PREFERRED_SIZE, 90, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(searchAllButton, javax.swing.GroupLayout.PREFERRED_SIZE, 90, javax.swing.GroupLayout.PREFERRED_SIZE))
         );
         sitePanelLayout.setVerticalGroup(
             sitePanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(sitePanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                 .addComponent(selectSiteButton)
-                .addComponent(selectedSiteLabel, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addComponent(selectedSiteLabel, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addComponent(searchAllButton))
         );
 
         splitPane.setBorder(null);
@@ -546,6 +639,11 @@ public class MangaDownloader extends javax.swing.JFrame {
         siteManager.setVisible(true);
     }//GEN-LAST:event_selectSiteButtonActionPerformed
 
+    private void searchAllButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_searchAllButtonActionPerformed
+        GlobalSearch globalSearch = new GlobalSearch(this, true);
+        globalSearch.setVisible(true);
+    }//GEN-LAST:event_searchAllButtonActionPerformed
+
     private void downloadButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_downloadButtonActionPerformed
         boolean oneSelected = false;
 
@@ -563,6 +661,7 @@ public class MangaDownloader extends javax.swing.JFrame {
 
                     if (!downloads.contains(download)) {
                         downloads.add(download);
+                        downloadJournal.added(download);
                         id++;
                     }
                 }
@@ -601,131 +700,38 @@ public class MangaDownloader extends javax.swing.JFrame {
         startDownloadButton.setEnabled(false);
         stopDownloadButton.setEnabled(true);
         removeDownloadButton.setEnabled(false);
-        interrupted = false;
 
-        new Thread(new Runnable() {
+        downloadScheduler = new DownloadScheduler(downloads, Options.INSTANCE.getDownloadThreads(), new DownloadListener() {
 
             @Override
-            public void run() {
-                int c = 0;
-
-                while (c < downloads.size()) {
-                    Download download = downloads.get(c);
-
-                    if (download.getState() != Download.State.DONE) {
-                        if (interrupted) {
-                            resetGui();
-                            return;
-                        }
-
-                        download.setState(Download.State.RUNNING);
-                        setMessage(download, "Getting image links ...");
-
-                        List<Image> imageLinks;
-
-                        try {
-                            imageLinks = download.getSite().getChapterImageLinks(download.getChapter());
-                        } catch (Exception ex) {
-                            download.setState(Download.State.ERROR);
-                            setMessage(download, "Error while getting image links!");
-                            c++;
-                            continue;
-                        }
-
-                        if (interrupted) {
-                            download.setState(Download.State.CANCELLED);
-                            setMessage(download, "Cancelled!");
-                            resetGui();
-                            return;
-                        }
-
-                        int numberOfImages = imageLinks.size();
-                        int numberOfImagesDigits = String.valueOf(numberOfImages).length();
-
-                        Path mangaFile = FilenameHelper.buildChapterPath(download.getManga(), download.getChapter());
-
-                        try {
-                            if (!Files.exists(mangaFile.getParent())) {
-                                Files.createDirectories(mangaFile.getParent());
-                            }
-
-                            if (Files.exists(mangaFile)) {
-                                Files.delete(mangaFile);
-                            }
-
-                            try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(mangaFile.toFile()))) {
-                                for (int i = 0; i < imageLinks.size(); i++) {
-                                    if (interrupted) {
-                                        zos.close();
-                                        removeFile(mangaFile);
-
-                                        download.setState(Download.State.CANCELLED);
-                                        setMessage(download, "Cancelled!");
-                                        resetGui();
-                                        return;
-                                    }
-
-                                    setMessage(download, "Downloading image " + (i + 1) + " of " + imageLinks.size() + " ...");
-
-                                    ZipEntry ze = new ZipEntry(String.format("%0" + numberOfImagesDigits + "d", (i + 1)) + "." + imageLinks.get(i).getExtension());
-                                    zos.putNextEntry(ze);
-
-                                    byte[] image;
-
-                                    if (imageLinks.get(i).getLinkFragment() == null) {
-                                        image = JsoupHelper.getImage(imageLinks.get(i).getLink(), imageLinks.get(i).getReferrer());
-                                    } else {
-                                        image = JsoupHelper.getImageWithFragment(imageLinks.get(i));
-                                    }
-
-                                    zos.write(image, 0, image.length);
-                                    zos.closeEntry();
-                                }
-                            }
-                        } catch (Exception ex) {
-                            removeFile(mangaFile);
-
-                            download.setState(Download.State.ERROR);
-                            setMessage(download, "Error while downloading images!");
-                            c++;
-                            continue;
-                        }
-
-                        download.setState(Download.State.DONE);
-                        setMessage(download, "Done!");
-                    }
-
-                    c++;
-                }
-
-                resetGui();
+            public void downloadChanged(Download download) {
+                downloadJournal.stateChanged(download);
+                downloadProgressPublisher.downloadChanged(download);
             }
 
-            private void removeFile(Path mangaFile) {
-                if (Files.exists(mangaFile)) {
-                    try {
-                        Files.delete(mangaFile);
-                    } catch (IOException ex) {
-                    }
-                }
-            }
+            @Override
+            public void downloadsFinished() {
+                SwingUtilities.invokeLater(new Runnable() {
 
-            private void setMessage(Download download, String message) {
-                download.setMessage(message);
-                downloadsTableModel.fireTableDataChanged();
-            }
+                    @Override
+                    public void run() {
+                        downloadProgressPublisher.stop();
 
-            private void resetGui() {
-                startDownloadButton.setEnabled(true);
-                stopDownloadButton.setEnabled(false);
-                removeDownloadButton.setEnabled(true);
+                        startDownloadButton.setEnabled(true);
+                        stopDownloadButton.setEnabled(false);
+                        removeDownloadButton.setEnabled(true);
+                    }
+                });
             }
-
-        }).start();
+        });
+        downloadProgressPublisher.start();
+        downloadScheduler.start();
     }//GEN-LAST:event_startDownloadButtonActionPerformed
 
     private void stopDownloadButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_stopDownloadButtonActionPerformed
-        interrupted = true;
+        if (downloadScheduler != null) {
+            downloadScheduler.stop();
+        }
     }//GEN-LAST:event_stopDownloadButtonActionPerformed
 
     private void removeDownloadButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_removeDownloadButtonActionPerformed
@@ -738,6 +744,10 @@ public class MangaDownloader extends javax.swing.JFrame {
 
         downloads.removeAll(remove);
 
+        for (Download download : remove) {
+            downloadJournal.removed(download);
+        }
+
         downloadsTableModel.fireTableDataChanged();
     }//GEN-LAST:event_removeDownloadButtonActionPerformed
 
@@ -795,6 +805,7 @@ public class MangaDownloader extends javax.swing.JFrame {
     private javax.swing.JPanel mangasDirPanel;
     private javax.swing.JTextField mangasDirTextField;
     private javax.swing.JButton removeDownloadButton;
+    private javax.swing.JButton searchAllButton;
     private javax.swing.JButton selectSiteButton;
     private javax.swing.JTextField selectedSiteLabel;
     private javax.swing.JPanel sitePanel;
@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import de.andreasgiemza.mangadownloader.helpers.FilenameHelper;
+import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
+import de.andreasgiemza.mangadownloader.http.PageValidator;
+import de.andreasgiemza.mangadownloader.options.Options;
+import de.andreasgiemza.mangadownloader.sites.Site;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Caches the chapter lists of the mangas in memory and on disk. A cached list
+ * older than the TTL is still shown, but revalidated in the background. If
+ * the server sent validators for all pages of the list, conditional requests
+ * tell if the list has to be loaded again.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public enum ChapterListCache {
+
+    INSTANCE;
+
+    public interface RefreshListener {
+
+        public void chapterListRefreshed(Manga manga, List<Chapter> chapters);
+    }
+
+    private final static int MEMORY_ENTRIES = 200;
+    private final static int REVALIDATION_THREADS = 2;
+    private final Gson gson = new Gson();
+    private final Cache<String, Entry> entries = CacheBuilder.newBuilder().maximumSize(MEMORY_ENTRIES).build();
+    private final Set<String> revalidating = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ExecutorService executor = Executors.newFixedThreadPool(REVALIDATION_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("ChapterListCache-%d").setDaemon(true).build());
+
+    /**
+     * @return the cached chapter list or null, if the manga isn't cached
+     */
+    public List<Chapter> get(Site site, Manga manga) {
+        Entry entry = getEntry(site, manga);
+
+        return entry != null ? entry.copyChapters() : null;
+    }
+
+    public List<Chapter> load(Site site, Manga manga) throws Exception {
+        Entry entry = fetch(site, manga);
+        put(site, manga, entry);
+
+        return entry.copyChapters();
+    }
+
+    /**
+     * Revalidates the cached chapter list in the background, if it is older
+     * than the TTL. The listener is only called if the list has changed.
+     */
+    public void revalidate(final Site site, final Manga manga, final RefreshListener listener) {
+        final String key = getKey(site, manga);
+        final Entry entry = getEntry(site, manga);
+
+        if (entry == null
+                || System.currentTimeMillis() - entry.fetched < Options.INSTANCE.getChapterListTtl()
+                || !revalidating.add(key)) {
+            return;
+        }
+
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Entry refreshed = revalidate(site, manga, entry);
+                    put(site, manga, refreshed);
+
+                    if (!isSameList(entry.chapters, refreshed.chapters)) {
+                        listener.chapterListRefreshed(manga, refreshed.copyChapters());
+                    }
+                } catch (Exception ex) {
+                    // The cached list stays until the next selection
+                } finally {
+                    revalidating.remove(key);
+                }
+            }
+        });
+    }
+
+    private Entry revalidate(Site site, Manga manga, Entry entry) throws Exception {
+        boolean revalidatable = !entry.validators.isEmpty();
+
+        for (PageValidator validator : entry.validators) {
+            revalidatable &= validator.canRevalidate();
+        }
+
+        if (revalidatable) {
+            boolean modified = false;
+
+            for (PageValidator validator : entry.validators) {
+                if (JsoupHelper.isModified(validator)) {
+                    modified = true;
+                    break;
+                }
+            }
+
+            if (!modified) {
+                return new Entry(System.currentTimeMillis(), entry.chapters, entry.validators);
+            }
+        }
+
+        return fetch(site, manga);
+    }
+
+    private Entry fetch(Site site, Manga manga) throws Exception {
+        List<PageValidator> validators = new ArrayList<>();
+        List<Chapter> chapters;
+
+        JsoupHelper.recordValidators(validators);
+        try {
+            chapters = site.getChapterList(manga);
+        } finally {
+            JsoupHelper.recordValidators(null);
+        }
+
+        List<Chapter> copies = new ArrayList<>(chapters.size());
+        for (Chapter chapter : chapters) {
+            copies.add(new Chapter(chapter.getLink(), chapter.getTitle()));
+        }
+
+        return new Entry(System.currentTimeMillis(), copies, validators);
+    }
+
+    private Entry getEntry(Site site, Manga manga) {
+        String key = getKey(site, manga);
+        Entry entry = entries.getIfPresent(key);
+
+        if (entry == null) {
+            try {
+                entry = gson.fromJson(new String(Files.readAllBytes(getFile(site, manga)), StandardCharsets.UTF_8), Entry.class);
+            } catch (IOException | JsonParseException ex) {
+                return null;
+            }
+
+            if (entry == null || entry.chapters == null || entry.validators == null) {
+                return null;
+            }
+
+            entries.put(key, entry);
+        }
+
+        return entry;
+    }
+
+    private void put(Site site, Manga manga, Entry entry) {
+        entries.put(getKey(site, manga), entry);
+
+        try {
+            Path file = getFile(site, manga);
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+            Files.createDirectories(file.getParent());
+            Files.write(tempFile, gson.toJson(entry).getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+        }
+    }
+
+    private static String getKey(Site site, Manga manga) {
+        return site.getName() + " " + manga.getLink();
+    }
+
+    private static Path getFile(Site site, Manga manga) {
+        return Options.INSTANCE.getChapterListDir()
+                .resolve(FilenameHelper.checkForIllegalCharacters(site.getName()))
+                .resolve(Hashing.sha1().hashString(manga.getLink(), StandardCharsets.UTF_8) + ".json");
+    }
+
+    private static boolean isSameList(List<Chapter> chapters, List<Chapter> otherChapters) {
+        if (chapters.size() != otherChapters.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < chapters.size(); i++) {
+            if (!chapters.get(i).getLink().equals(otherChapters.get(i).getLink())
+                    || !chapters.get(i).getTitle().equals(otherChapters.get(i).getTitle())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static class Entry {
+
+        private final long fetched;
+        private final List<Chapter> chapters;
+        private final List<PageValidator> validators;
+
+        Entry(long fetched, List<Chapter> chapters, List<PageValidator> validators) {
+            this.fetched = fetched;
+            this.chapters = chapters;
+            this.validators = validators;
+        }
+
+        // The table changes the download flags of the chapters
+        List<Chapter> copyChapters() {
+            List<Chapter> copies = new ArrayList<>(chapters.size());
+
+            for (Chapter chapter : chapters) {
+                copies.add(new Chapter(chapter.getLink(), chapter.getTitle()));
+            }
+
+            return copies;
+        }
+    }
+}
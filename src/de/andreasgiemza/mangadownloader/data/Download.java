@@ -25,6 +25,7 @@ package de.andreasgiemza.mangadownloader.data;
 
 import de.andreasgiemza.mangadownloader.sites.Site;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  *
@@ -36,8 +37,8 @@ public class Download {
     private final Site site;
     private final Manga manga;
     private final Chapter chapter;
-    private State state = State.PENDING;
-    private String message = "Pending";
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+    private volatile String message = "Pending";
 
     public Download(int id, Site site, Manga manga, Chapter chapter) {
         this.id = id;
@@ -63,11 +64,15 @@ public class Download {
     }
 
     public State getState() {
-        return state;
+        return state.get();
     }
 
     public void setState(State state) {
-        this.state = state;
+        this.state.set(state);
+    }
+
+    public boolean compareAndSetState(State expect, State update) {
+        return state.compareAndSet(expect, update);
     }
 
     public String getMessage() {
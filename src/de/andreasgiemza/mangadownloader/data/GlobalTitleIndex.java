@@ -0,0 +1,242 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.andreasgiemza.mangadownloader.search.TitleIndex;
+import de.andreasgiemza.mangadownloader.sites.Site;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Title index over the saved manga lists of all sites. Every manga list has
+ * its own segment next to it, also the lists of sites which share a host.
+ * Saving or refreshing a list rewrites only its segment. Segments of lists
+ * which changed otherwise are rebuilt on the next search.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public enum GlobalTitleIndex {
+
+    INSTANCE;
+
+    /*
+     * File format (big endian):
+     *
+     * int     magic
+     * short   version
+     * long[]  last modified time and size of the list, size of the delta
+     * index   title index of the rows of the list, see TitleIndex
+     */
+    private final static String indexExtension = ".idx";
+    private final static int MAGIC = 0x4d444d49;
+    private final static short VERSION = 1;
+    private final static int MAX_HITS_PER_SITE = 500;
+    private final Cache<String, Segment> segments = CacheBuilder.newBuilder().softValues().build();
+
+    /**
+     * Rewrites the segment of the site. The mangas have to be the list
+     * MangaList.load returns for the saved files.
+     */
+    public synchronized void update(Site site, List<Manga> mangas) {
+        try {
+            Segment segment = new Segment(getStamp(site), new TitleIndex(getTitles(mangas)));
+
+            write(getIndexFile(site), segment);
+            segments.put(site.getName(), segment);
+        } catch (IOException ex) {
+            segments.invalidate(site.getName());
+        }
+    }
+
+    /**
+     * @return the mangas matching the query, grouped by site in the order of
+     * the given sites. Sites without a saved list or without hits are left
+     * out.
+     */
+    public Map<Site, List<Manga>> search(List<Site> sites, String query) {
+        Map<Site, List<Manga>> hits = new LinkedHashMap<>();
+
+        if (query.trim().isEmpty()) {
+            return hits;
+        }
+
+        for (Site site : sites) {
+            Segment segment = getSegment(site);
+
+            if (segment == null) {
+                continue;
+            }
+
+            BitSet rows = segment.index.search(query);
+
+            if (rows.isEmpty()) {
+                continue;
+            }
+
+            // Only the matching rows of the list are decoded
+            List<Manga> mangas = MangaList.load(site);
+
+            if (mangas.size() != segment.index.size()) {
+                continue;
+            }
+
+            List<Manga> siteHits = new ArrayList<>();
+            for (int row = rows.nextSetBit(0); row >= 0 && siteHits.size() < MAX_HITS_PER_SITE; row = rows.nextSetBit(row + 1)) {
+                siteHits.add(mangas.get(row));
+            }
+
+            hits.put(site, siteHits);
+        }
+
+        return hits;
+    }
+
+    private synchronized Segment getSegment(Site site) {
+        long[] stamp;
+
+        try {
+            stamp = getStamp(site);
+        } catch (IOException ex) {
+            return null;
+        }
+
+        Segment segment = segments.getIfPresent(site.getName());
+
+        if (segment != null && Arrays.equals(segment.stamp, stamp)) {
+            return segment;
+        }
+
+        Path indexFile = getIndexFile(site);
+        segment = read(indexFile);
+
+        if (segment == null || !Arrays.equals(segment.stamp, stamp)) {
+            segment = new Segment(stamp, new TitleIndex(getTitles(MangaList.load(site))));
+
+            try {
+                write(indexFile, segment);
+            } catch (IOException ex) {
+            }
+        }
+
+        segments.put(site.getName(), segment);
+
+        return segment;
+    }
+
+    private static Path getIndexFile(Site site) {
+        Path sourceFile = MangaList.getSourceFile(site);
+        return sourceFile.resolveSibling(sourceFile.getFileName() + indexExtension);
+    }
+
+    // Every save and refresh of the list changes the list or the delta size
+    private static long[] getStamp(Site site) throws IOException {
+        Path sourceFile = MangaList.getSourceFile(site);
+        Path deltaFile = MangaList.getDeltaFile(site);
+
+        return new long[]{
+            Files.getLastModifiedTime(sourceFile).toMillis(),
+            Files.size(sourceFile),
+            Files.exists(deltaFile) ? Files.size(deltaFile) : -1};
+    }
+
+    private static List<String> getTitles(final List<Manga> mangas) {
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(int index) {
+                return mangas.get(index).getTitle();
+            }
+
+            @Override
+            public int size() {
+                return mangas.size();
+            }
+        };
+    }
+
+    private static void write(Path indexFile, Segment segment) throws IOException {
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+
+            for (long value : segment.stamp) {
+                out.writeLong(value);
+            }
+
+            segment.index.write(out);
+        }
+
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Segment read(Path indexFile) {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                return null;
+            }
+
+            long[] stamp = new long[3];
+            for (int i = 0; i < stamp.length; i++) {
+                stamp[i] = buffer.getLong();
+            }
+
+            return new Segment(stamp, TitleIndex.read(buffer));
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static class Segment {
+
+        private final long[] stamp;
+        private final TitleIndex index;
+
+        Segment(long[] stamp, TitleIndex index) {
+            this.stamp = stamp;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.data;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.andreasgiemza.mangadownloader.helpers.FilenameHelper;
+import de.andreasgiemza.mangadownloader.options.Options;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of the downloaded mangas and chapters in the mangas directory. The
+ * mangas directory and the directory of a manga are listed once and kept
+ * current by a WatchService, so checking a manga or chapter doesn't touch the
+ * file system. Directories which can't be watched are listed again after a
+ * few seconds. Directories are listed without holding the lock of the index,
+ * the mangas directory on a background thread.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public enum LibraryIndex {
+
+    INSTANCE;
+
+    public interface ChangeListener {
+
+        // Called on a background thread
+        public void libraryChanged();
+    }
+
+    private final static String chapterExtension = ".cbz";
+    private final static int MAX_WATCHED_MANGAS = 64;
+    private final static long UNWATCHED_TTL = TimeUnit.SECONDS.toMillis(5);
+    private final ExecutorService lister = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("LibraryIndex-List-%d").setDaemon(true).build());
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private String mangaDir;
+    private Listing library;
+    private boolean listingLibrary = false;
+    private final Map<String, Listing> mangas = new LinkedHashMap<String, Listing>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Listing> eldest) {
+            if (size() > MAX_WATCHED_MANGAS) {
+                unwatch(eldest.getValue());
+                return true;
+            }
+
+            return false;
+        }
+    };
+    private final Map<WatchKey, String> watchedMangas = new HashMap<>();
+    // Listings which are read right now, changes during the read invalidate them
+    private final Set<Listing> pendingListings = new HashSet<>();
+    private WatchService watchService;
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Only looks at the listed mangas. A missing or outdated listing is listed
+     * again in the background, the listeners are told when it's done.
+     */
+    public synchronized boolean isDownloaded(Manga manga) {
+        checkMangaDir();
+
+        if (library == null || !library.isCurrent()) {
+            listLibrary();
+        }
+
+        return library != null && library.names.contains(FilenameHelper.buildMangaDirName(manga));
+    }
+
+    /**
+     * @return the file names of the downloaded chapters of the manga
+     */
+    public Set<String> getChapterFiles(Manga manga) {
+        String mangaDirName = FilenameHelper.buildMangaDirName(manga);
+        String listedMangaDir;
+
+        synchronized (this) {
+            checkMangaDir();
+
+            if (library != null && library.isCurrent() && !library.names.contains(mangaDirName)) {
+                return Collections.emptySet();
+            }
+
+            Listing listing = mangas.get(mangaDirName);
+
+            if (listing != null && listing.isCurrent()) {
+                return new HashSet<>(listing.names);
+            }
+
+            listedMangaDir = mangaDir;
+        }
+
+        Listing listing = list(Paths.get(listedMangaDir).resolve(mangaDirName), chapterExtension);
+        Set<String> chapterFiles = new HashSet<>(listing.names);
+
+        synchronized (this) {
+            if (!listedMangaDir.equals(mangaDir)) {
+                unwatch(listing);
+                return chapterFiles;
+            }
+
+            Listing replaced = mangas.put(mangaDirName, listing);
+
+            // Listing the same directory again yields the same key
+            if (replaced != null && replaced.key != null && !replaced.key.equals(listing.key)) {
+                unwatch(replaced);
+            }
+
+            if (listing.key != null) {
+                watchedMangas.put(listing.key, mangaDirName);
+            }
+        }
+
+        return chapterFiles;
+    }
+
+    /**
+     * Adds a downloaded chapter, which file systems without change
+     * notifications wouldn't report.
+     */
+    public void added(Path chapterFile) {
+        Path mangaPath = chapterFile.getParent();
+
+        synchronized (this) {
+            if (library == null || !library.dir.equals(mangaPath.getParent())) {
+                return;
+            }
+
+            String mangaDirName = mangaPath.getFileName().toString();
+            library.names.add(mangaDirName);
+
+            Listing listing = mangas.get(mangaDirName);
+            if (listing != null) {
+                listing.names.add(chapterFile.getFileName().toString());
+            }
+        }
+
+        fireLibraryChanged();
+    }
+
+    private void checkMangaDir() {
+        String currentMangaDir = Options.INSTANCE.getMangaDir();
+
+        if (!currentMangaDir.equals(mangaDir)) {
+            clear();
+            mangaDir = currentMangaDir;
+        }
+    }
+
+    // The outdated listing is still used until the new one is done
+    private void listLibrary() {
+        if (listingLibrary) {
+            return;
+        }
+
+        listingLibrary = true;
+        final String listedMangaDir = mangaDir;
+
+        lister.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                Listing listing = list(Paths.get(listedMangaDir), null);
+
+                synchronized (LibraryIndex.this) {
+                    listingLibrary = false;
+
+                    if (!listedMangaDir.equals(mangaDir)) {
+                        unwatch(listing);
+                        listLibrary();
+                        return;
+                    }
+
+                    if (library != null && library.key != null && !library.key.equals(listing.key)) {
+                        unwatch(library);
+                    }
+
+                    library = listing;
+                }
+
+                fireLibraryChanged();
+            }
+        });
+    }
+
+    private void clear() {
+        if (library != null) {
+            unwatch(library);
+            library = null;
+        }
+
+        for (Listing listing : mangas.values()) {
+            unwatch(listing);
+        }
+
+        mangas.clear();
+    }
+
+    // Watches before listing, so no change between both gets lost
+    private Listing list(Path dir, String extension) {
+        Listing listing = new Listing(dir, watch(dir));
+
+        synchronized (this) {
+            pendingListings.add(listing);
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+
+                if (extension == null || name.endsWith(extension)) {
+                    listing.names.add(name);
+                }
+            }
+        } catch (IOException ex) {
+        }
+
+        synchronized (this) {
+            pendingListings.remove(listing);
+        }
+
+        return listing;
+    }
+
+    private WatchKey watch(Path dir) {
+        try {
+            return dir.register(getWatchService(dir),
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            return null;
+        }
+    }
+
+    private synchronized WatchService getWatchService(Path dir) throws IOException {
+        if (watchService == null) {
+            final WatchService newWatchService = dir.getFileSystem().newWatchService();
+            watchService = newWatchService;
+
+            Thread watcher = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    processEvents(newWatchService);
+                }
+            }, "LibraryIndex");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+
+        return watchService;
+    }
+
+    private void unwatch(Listing listing) {
+        if (listing.key != null) {
+            listing.key.cancel();
+            watchedMangas.remove(listing.key);
+        }
+    }
+
+    private void processEvents(WatchService service) {
+        while (true) {
+            WatchKey key;
+
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+
+            boolean libraryChanged;
+
+            synchronized (this) {
+                boolean isLibrary = library != null && key.equals(library.key);
+                String mangaDirName = watchedMangas.get(key);
+                Listing listing = isLibrary ? library : mangaDirName != null ? mangas.get(mangaDirName) : null;
+                List<WatchEvent<?>> events = key.pollEvents();
+
+                for (Listing pendingListing : pendingListings) {
+                    if (key.equals(pendingListing.key) && !events.isEmpty()) {
+                        pendingListing.invalidate();
+                    }
+                }
+
+                libraryChanged = isLibrary && !events.isEmpty();
+
+                for (WatchEvent<?> event : events) {
+                    if (listing == null) {
+                        continue;
+                    }
+
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        listing.invalidate();
+                        continue;
+                    }
+
+                    String name = event.context().toString();
+                    boolean created = event.kind() == StandardWatchEventKinds.ENTRY_CREATE;
+
+                    if (isLibrary) {
+                        if (created) {
+                            listing.names.add(name);
+                        } else {
+                            listing.names.remove(name);
+
+                            Listing removedManga = mangas.remove(name);
+                            if (removedManga != null) {
+                                unwatch(removedManga);
+                            }
+                        }
+                    } else if (name.endsWith(chapterExtension)) {
+                        if (created) {
+                            listing.names.add(name);
+                        } else {
+                            listing.names.remove(name);
+                        }
+                    }
+                }
+
+                if (!key.reset()) {
+                    watchedMangas.remove(key);
+                }
+            }
+
+            if (libraryChanged) {
+                fireLibraryChanged();
+            }
+        }
+    }
+
+    private void fireLibraryChanged() {
+        for (ChangeListener listener : listeners) {
+            listener.libraryChanged();
+        }
+    }
+
+    private static class Listing {
+
+        private final Path dir;
+        private final Set<String> names = new HashSet<>();
+        private final WatchKey key;
+        private final long listed = System.currentTimeMillis();
+        private boolean invalid = false;
+
+        Listing(Path dir, WatchKey key) {
+            this.dir = dir;
+            this.key = key;
+        }
+
+        boolean isCurrent() {
+            if (invalid) {
+                return false;
+            }
+
+            if (key != null) {
+                return key.isValid();
+            }
+
+            return System.currentTimeMillis() - listed < UNWATCHED_TTL;
+        }
+
+        void invalidate() {
+            invalid = true;
+        }
+    }
+}
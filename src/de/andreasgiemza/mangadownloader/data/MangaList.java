@@ -25,17 +25,34 @@ package de.andreasgiemza.mangadownloader.data;
 
 import de.andreasgiemza.mangadownloader.helpers.FilenameHelper;
 import de.andreasgiemza.mangadownloader.options.Options;
+import de.andreasgiemza.mangadownloader.sites.IncrementalSite;
 import de.andreasgiemza.mangadownloader.sites.Site;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.text.SimpleDateFormat;
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -43,63 +60,514 @@ import java.util.List;
  */
 public final class MangaList {
 
+    /*
+     * File format (big endian):
+     *
+     * int     magic
+     * short   version
+     * varint  number of prefixes, followed by the prefixes as strings
+     * varint  number of mangas
+     * int[]   offset of every manga relative to the first manga
+     * mangas  varint prefix index, string link suffix, string title
+     *
+     * Strings are a varint byte length followed by the UTF-8 bytes.
+     *
+     * Refreshes append their changes to a delta file next to the list:
+     *
+     * int     magic
+     * short   version
+     * records byte type, followed by
+     *         ADDED      string link, string title
+     *         REMOVED    string link
+     *         REFRESHED  long time of the last full refresh
+     */
     private final static String sourcesExtension = ".list";
+    private final static String deltaExtension = ".delta";
+    private final static int MAGIC = 0x4d444d4c;
+    private final static int DELTA_MAGIC = 0x4d444d44;
+    private final static short VERSION = 1;
+    private final static int SERIALIZATION_MAGIC = 0xaced;
+    private final static byte ADDED = 1;
+    private final static byte REMOVED = 2;
+    private final static byte REFRESHED = 3;
+    // Incremental refreshes don't notice removed mangas
+    private final static long FULL_REFRESH_INTERVAL = TimeUnit.DAYS.toMillis(7);
+    private final static int MIN_COMPACT_RECORDS = 1000;
 
     private MangaList() {
     }
 
     public static void save(Site site, List<Manga> mangas) {
         try {
-            Path sourceFile = Options.INSTANCE.getMangaListDir().resolve(
-                    FilenameHelper.checkForIllegalCharacters(site.getName()) + sourcesExtension);
+            save(site, mangas, -1);
+        } catch (IOException ex) {
+            return;
+        }
+
+        GlobalTitleIndex.INSTANCE.update(site, load(site));
+    }
+
+    public static List<Manga> load(Site site) {
+        List<Manga> mangas = loadSource(site);
+
+        try {
+            return readDelta(getDeltaFile(site)).apply(mangas);
+        } catch (IOException ex) {
+            return mangas;
+        }
+    }
+
+    /**
+     * Loads the manga list of the site and stores the changes to the saved
+     * list as delta. Sites which list new mangas first only load the pages
+     * with new mangas, unless the last full refresh is older than a week.
+     */
+    public static List<Manga> refresh(Site site) throws Exception {
+        if (!Files.exists(getSourceFile(site))) {
+            save(site, site.getMangaList(), -1);
+            return loadAndIndex(site);
+        }
+
+        Path deltaFile = getDeltaFile(site);
+        Delta delta;
+
+        try {
+            delta = readDelta(deltaFile);
+        } catch (IOException ex) {
+            delta = new Delta();
+        }
+
+        List<Manga> stored = delta.apply(loadSource(site));
+        long lastFullRefresh = delta.lastFullRefresh >= 0
+                ? delta.lastFullRefresh
+                : Files.getLastModifiedTime(getSourceFile(site)).toMillis();
+        List<Manga> mangas;
+        List<Manga> added = new ArrayList<>();
+        List<Manga> removed = new ArrayList<>();
+
+        if (site instanceof IncrementalSite && System.currentTimeMillis() - lastFullRefresh < FULL_REFRESH_INTERVAL) {
+            Set<String> links = new HashSet<>();
+            for (Manga manga : stored) {
+                links.add(manga.getLink());
+            }
 
-            if (!Files.exists(sourceFile.getParent())) {
-                Files.createDirectory(sourceFile.getParent());
+            added.addAll(((IncrementalSite) site).getNewMangaList(links));
+
+            mangas = new ArrayList<>(stored);
+            mangas.addAll(added);
+        } else {
+            mangas = site.getMangaList();
+            lastFullRefresh = System.currentTimeMillis();
+
+            Map<String, Manga> gone = new LinkedHashMap<>();
+            for (Manga manga : stored) {
+                gone.put(manga.getLink(), manga);
             }
 
-            if (Files.exists(sourceFile)) {
-                Files.delete(sourceFile);
+            Set<String> links = new HashSet<>();
+            for (Manga manga : mangas) {
+                if (!links.add(manga.getLink())) {
+                    continue;
+                }
+
+                Manga old = gone.remove(manga.getLink());
+
+                if (!manga.equals(old)) {
+                    if (old != null) {
+                        removed.add(old);
+                    }
+
+                    added.add(manga);
+                }
             }
 
-            try (FileOutputStream fout = new FileOutputStream(sourceFile.toFile())) {
-                ObjectOutputStream oos = new ObjectOutputStream(fout);
-                oos.writeObject(mangas);
+            removed.addAll(gone.values());
+        }
+
+        // Rewrite the list once reading the delta costs more than it saves
+        if (delta.records + added.size() + removed.size() > Math.max(MIN_COMPACT_RECORDS, stored.size() / 4)) {
+            save(site, mangas, lastFullRefresh);
+        } else {
+            appendDelta(deltaFile, delta, added, removed, lastFullRefresh);
+        }
+
+        return loadAndIndex(site);
+    }
+
+    public static String getLastListUpdate(Site site) {
+        Path mangasListFile = getSourceFile(site);
+        Path deltaFile = getDeltaFile(site);
+
+        try {
+            long lastUpdate = Files.getLastModifiedTime(mangasListFile).toMillis();
+
+            if (Files.exists(deltaFile)) {
+                lastUpdate = Math.max(lastUpdate, Files.getLastModifiedTime(deltaFile).toMillis());
             }
+
+            return new SimpleDateFormat("yyyy.MM.dd - HH:mm:ss").format(lastUpdate);
         } catch (IOException ex) {
+            return null;
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public static List<Manga> load(Site site) {
-        List<Manga> mangas = null;
+    private static List<Manga> loadAndIndex(Site site) {
+        List<Manga> mangas = load(site);
+        GlobalTitleIndex.INSTANCE.update(site, mangas);
+
+        return mangas;
+    }
 
-        Path sourceFile = Options.INSTANCE.getMangaListDir().resolve(
+    static Path getSourceFile(Site site) {
+        return Options.INSTANCE.getMangaListDir().resolve(
                 FilenameHelper.checkForIllegalCharacters(site.getName()) + sourcesExtension);
+    }
+
+    static Path getDeltaFile(Site site) {
+        Path sourceFile = getSourceFile(site);
+        return sourceFile.resolveSibling(sourceFile.getFileName() + deltaExtension);
+    }
+
+    // A negative time of the last full refresh means now
+    private static void save(Site site, List<Manga> mangas, long lastFullRefresh) throws IOException {
+        Path sourceFile = getSourceFile(site);
+        Path deltaFile = getDeltaFile(site);
+
+        if (!Files.exists(sourceFile.getParent())) {
+            Files.createDirectories(sourceFile.getParent());
+        }
+
+        // Write to a temporary file first, so a failed save keeps the old list
+        Path tempFile = sourceFile.resolveSibling(sourceFile.getFileName() + ".tmp");
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+            write(out, mangas);
+        }
+
+        Files.move(tempFile, sourceFile, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(deltaFile);
 
-        if (Files.exists(sourceFile)) {
-            try (FileInputStream fin = new FileInputStream(sourceFile.toFile())) {
-                ObjectInputStream ois = new ObjectInputStream(fin);
-                mangas = (LinkedList<Manga>) ois.readObject();
-            } catch (IOException | ClassNotFoundException ex) {
+        if (lastFullRefresh >= 0) {
+            appendDelta(deltaFile, new Delta(), Collections.<Manga>emptyList(), Collections.<Manga>emptyList(), lastFullRefresh);
+        }
+    }
+
+    private static List<Manga> loadSource(Site site) {
+        Path sourceFile = getSourceFile(site);
+
+        if (!Files.exists(sourceFile)) {
+            return Collections.emptyList();
+        }
+
+        try {
+            ByteBuffer buffer = read(sourceFile);
+
+            if (buffer.remaining() >= 2 && (buffer.getShort(0) & 0xffff) == SERIALIZATION_MAGIC) {
+                List<Manga> mangas = readSerialized(sourceFile);
+                save(site, mangas);
+                return mangas;
             }
+
+            return new LazyMangaList(buffer);
+        } catch (IOException | ClassNotFoundException | RuntimeException ex) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static ByteBuffer read(Path sourceFile) throws IOException {
+        if (!Options.INSTANCE.isMapMangaLists()) {
+            return ByteBuffer.wrap(Files.readAllBytes(sourceFile));
         }
 
-        if (mangas == null) {
-            return new LinkedList<>();
+        try (FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         }
+    }
 
-        return mangas;
+    // Lists written by older versions with Java serialization
+    @SuppressWarnings("unchecked")
+    private static List<Manga> readSerialized(Path sourceFile) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(sourceFile))) {
+            return new ArrayList<>((List<Manga>) ois.readObject());
+        }
     }
 
-    public static String getLastListUpdate(Site site) {
-        Path mangasListFile = Options.INSTANCE.getMangaListDir().resolve(
-                FilenameHelper.checkForIllegalCharacters(site.getName()) + sourcesExtension);
+    private static void write(OutputStream out, List<Manga> mangas) throws IOException {
+        Map<String, Integer> prefixes = new LinkedHashMap<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream(mangas.size() * 64);
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        int[] offsets = new int[mangas.size()];
+        int i = 0;
+
+        for (Manga manga : mangas) {
+            String link = manga.getLink();
+            String prefix = getPrefix(link);
+            Integer index = prefixes.get(prefix);
+
+            if (index == null) {
+                index = prefixes.size();
+                prefixes.put(prefix, index);
+            }
+
+            offsets[i++] = recordsOut.size();
+            writeVarInt(recordsOut, index);
+            writeString(recordsOut, link.substring(prefix.length()));
+            writeString(recordsOut, manga.getTitle());
+        }
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeShort(VERSION);
+        writeVarInt(dataOut, prefixes.size());
+        for (String prefix : prefixes.keySet()) {
+            writeString(dataOut, prefix);
+        }
+        writeVarInt(dataOut, offsets.length);
+        for (int offset : offsets) {
+            dataOut.writeInt(offset);
+        }
+        records.writeTo(dataOut);
+        dataOut.flush();
+    }
+
+    private static Delta readDelta(Path deltaFile) throws IOException {
+        Delta delta = new Delta();
+
+        if (!Files.exists(deltaFile)) {
+            return delta;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(deltaFile));
+
+        if (buffer.remaining() < 6 || buffer.getInt() != DELTA_MAGIC || buffer.getShort() != VERSION) {
+            throw new IOException("Unknown manga list delta format");
+        }
+
+        delta.length = buffer.position();
 
         try {
-            return new SimpleDateFormat("yyyy.MM.dd - HH:mm:ss").format(
-                    Files.getLastModifiedTime(mangasListFile).toMillis());
-        } catch (IOException ex) {
-            return null;
+            while (buffer.hasRemaining()) {
+                switch (buffer.get()) {
+                    case ADDED:
+                        Manga manga = new Manga(readString(buffer), readString(buffer));
+                        delta.changes.remove(manga.getLink());
+                        delta.changes.put(manga.getLink(), manga);
+                        break;
+                    case REMOVED:
+                        delta.changes.put(readString(buffer), null);
+                        delta.removals = true;
+                        break;
+                    case REFRESHED:
+                        delta.lastFullRefresh = buffer.getLong();
+                        break;
+                    default:
+                        throw new IOException("Malformed manga list delta");
+                }
+
+                delta.records++;
+                delta.length = buffer.position();
+            }
+        } catch (BufferUnderflowException | IOException ex) {
+            // A torn record at the end is dropped by the next append
+        }
+
+        return delta;
+    }
+
+    // A negative time of the last full refresh isn't recorded
+    private static void appendDelta(Path deltaFile, Delta delta, List<Manga> added, List<Manga> removed, long lastFullRefresh) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        if (delta.length == 0) {
+            out.writeInt(DELTA_MAGIC);
+            out.writeShort(VERSION);
+        }
+
+        for (Manga manga : removed) {
+            out.writeByte(REMOVED);
+            writeString(out, manga.getLink());
+        }
+
+        for (Manga manga : added) {
+            out.writeByte(ADDED);
+            writeString(out, manga.getLink());
+            writeString(out, manga.getTitle());
+        }
+
+        if (lastFullRefresh >= 0) {
+            out.writeByte(REFRESHED);
+            out.writeLong(lastFullRefresh);
+        }
+
+        try (FileChannel channel = FileChannel.open(deltaFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(delta.length);
+            channel.position(delta.length);
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        // Refreshes without changes still count as update
+        Files.setLastModifiedTime(deltaFile, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    // Everything up to the last path segment, e.g. "http://host/manga/" for "http://host/manga/title/"
+    private static String getPrefix(String link) {
+        return link.substring(0, link.lastIndexOf('/', link.length() - 2) + 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed manga list");
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Delta {
+
+        // Latest change per link, null for removed mangas
+        private final Map<String, Manga> changes = new LinkedHashMap<>();
+        private boolean removals;
+        private int records;
+        private long length;
+        private long lastFullRefresh = -1;
+
+        List<Manga> apply(List<Manga> mangas) {
+            if (changes.isEmpty()) {
+                return mangas;
+            }
+
+            if (!removals) {
+                return new ConcatenatedMangaList(mangas, new ArrayList<>(changes.values()));
+            }
+
+            List<Manga> result = new ArrayList<>(mangas.size() + changes.size());
+
+            for (Manga manga : mangas) {
+                if (!changes.containsKey(manga.getLink())) {
+                    result.add(manga);
+                }
+            }
+
+            for (Manga manga : changes.values()) {
+                if (manga != null) {
+                    result.add(manga);
+                }
+            }
+
+            return result;
+        }
+    }
+
+    // Keeps the saved list lazy if mangas were only added
+    private static class ConcatenatedMangaList extends AbstractList<Manga> implements RandomAccess {
+
+        private final List<Manga> first;
+        private final List<Manga> second;
+
+        ConcatenatedMangaList(List<Manga> first, List<Manga> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public Manga get(int index) {
+            return index < first.size() ? first.get(index) : second.get(index - first.size());
+        }
+
+        @Override
+        public int size() {
+            return first.size() + second.size();
+        }
+    }
+
+    // Decodes mangas on first access, so opening a list only reads the header
+    private static class LazyMangaList extends AbstractList<Manga> implements RandomAccess {
+
+        private final ByteBuffer buffer;
+        private final String[] prefixes;
+        private final int offsetsStart;
+        private final int recordsStart;
+        private final Manga[] mangas;
+
+        LazyMangaList(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+
+            ByteBuffer header = buffer.duplicate();
+
+            if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+                throw new IOException("Unknown manga list format");
+            }
+
+            prefixes = new String[readVarInt(header)];
+            for (int i = 0; i < prefixes.length; i++) {
+                prefixes[i] = readString(header);
+            }
+
+            mangas = new Manga[readVarInt(header)];
+            offsetsStart = header.position();
+            recordsStart = offsetsStart + mangas.length * 4;
+
+            if (recordsStart > buffer.limit()) {
+                throw new IOException("Truncated manga list");
+            }
+        }
+
+        @Override
+        public Manga get(int index) {
+            Manga manga = mangas[index];
+
+            if (manga == null) {
+                ByteBuffer record = buffer.duplicate();
+                record.position(recordsStart + buffer.getInt(offsetsStart + index * 4));
+
+                try {
+                    String link = prefixes[readVarInt(record)] + readString(record);
+                    manga = new Manga(link, readString(record));
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+
+                mangas[index] = manga;
+            }
+
+            return manga;
+        }
+
+        @Override
+        public int size() {
+            return mangas.length;
         }
     }
 }
@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.data.gui.download;
+
+import de.andreasgiemza.mangadownloader.data.Download;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.swing.Timer;
+
+/**
+ * Publishes the progress of the downloads to the download table. The workers
+ * only mark their download as changed, which doesn't block. The marked rows
+ * are updated on the event dispatch thread a fixed number of times per
+ * second, with one event for every range of adjacent rows.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class DownloadProgressPublisher {
+
+    private final static int FRAMES_PER_SECOND = 10;
+    private final List<Download> downloads;
+    private final DownloadTableModel downloadTableModel;
+    private final Set<Download> changed = Collections.newSetFromMap(new ConcurrentHashMap<Download, Boolean>());
+    private final Timer timer;
+
+    public DownloadProgressPublisher(List<Download> downloads, DownloadTableModel downloadTableModel) {
+        this.downloads = downloads;
+        this.downloadTableModel = downloadTableModel;
+
+        timer = new Timer(1000 / FRAMES_PER_SECOND, new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                publish();
+            }
+        });
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Can be called from any thread.
+     */
+    public void downloadChanged(Download download) {
+        changed.add(download);
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    /**
+     * Stops publishing after the last changes are published.
+     */
+    public void stop() {
+        timer.stop();
+        publish();
+    }
+
+    private void publish() {
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        int row = 0;
+        int firstRow = -1;
+
+        for (Download download : downloads) {
+            if (changed.remove(download)) {
+                if (firstRow < 0) {
+                    firstRow = row;
+                }
+            } else if (firstRow >= 0) {
+                downloadTableModel.fireTableRowsUpdated(firstRow, row - 1);
+                firstRow = -1;
+            }
+
+            row++;
+        }
+
+        if (firstRow >= 0) {
+            downloadTableModel.fireTableRowsUpdated(firstRow, row - 1);
+        }
+
+        // Downloads which were removed from the list in the meantime
+        changed.retainAll(downloads);
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import com.google.common.io.CountingOutputStream;
+import com.google.common.io.FileBackedOutputStream;
+import com.google.common.util.concurrent.Uninterruptibles;
+import de.andreasgiemza.mangadownloader.helpers.StreamHelper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes the chapter archive like ZipOutputStream does, but deflates the
+ * entries on a fork-join pool. The entries are still appended in the order they
+ * were added, so the file is the same as the one of ZipOutputStream: STORED
+ * entries with their sizes in the local header, DEFLATED entries followed by a
+ * data descriptor, UTF-8 names and no extra fields.
+ *
+ * Added images are owned by the writer and reset once they are written. Every
+ * written entry is reported to the listener, and a writer can continue an
+ * archive whose entries were written before, as long as the stream is
+ * positioned right after the last of them.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+class CbzWriter implements Closeable {
+
+    interface Listener {
+
+        /**
+         * Called once the entry is written and flushed.
+         */
+        void entryWritten(Entry entry) throws IOException;
+    }
+
+    private final static int LOCAL_HEADER = 0x04034b50;
+    private final static int DATA_DESCRIPTOR = 0x08074b50;
+    private final static int CENTRAL_HEADER = 0x02014b50;
+    private final static int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private final static int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private final static int FLAG_UTF8 = 0x0800;
+    private final static long MAX_SIZE = 0xFFFFFFFFL;
+    private final static int MAX_ENTRIES = 0xFFFF;
+    private final static ForkJoinPool deflatePool = new ForkJoinPool();
+    private final CountingOutputStream out;
+    private final long startOffset;
+    private final int inMemoryThreshold;
+    private final Listener listener;
+    private final int maxPending;
+    private final Deque<PendingEntry> pending = new ArrayDeque<>();
+    private final List<Entry> written;
+    private boolean closed = false;
+
+    CbzWriter(OutputStream out, int inMemoryThreshold) {
+        this(out, new ArrayList<Entry>(), inMemoryThreshold, null);
+    }
+
+    /**
+     * @param out positioned at the end of the last already written entry
+     * @param written the entries already in the archive
+     */
+    CbzWriter(OutputStream out, List<Entry> written, int inMemoryThreshold, Listener listener) {
+        this.out = new CountingOutputStream(out);
+        this.written = new ArrayList<>(written);
+        this.startOffset = written.isEmpty() ? 0 : written.get(written.size() - 1).getEnd();
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.listener = listener;
+        this.maxPending = deflatePool.getParallelism() * 2;
+    }
+
+    /**
+     * Queues the entry and writes all entries before it whose data is ready.
+     * Blocks while too many entries are still being deflated.
+     */
+    void add(ZipEntry zipEntry, ImageBuffer image) throws IOException {
+        if (written.size() + pending.size() >= MAX_ENTRIES || image.getSize() > MAX_SIZE) {
+            image.reset();
+            throw new ZipException("Too large for a zip file without ZIP64: " + zipEntry.getName());
+        }
+
+        if (zipEntry.getTime() == -1) {
+            zipEntry.setTime(System.currentTimeMillis());
+        }
+
+        PendingEntry pendingEntry = new PendingEntry(new Entry(zipEntry.getName(),
+                zipEntry.getMethod() == ZipEntry.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED,
+                toDosTime(zipEntry.getTime()),
+                image.getCrc(),
+                image.getSize()), image);
+
+        if (pendingEntry.entry.method != ZipEntry.STORED) {
+            pendingEntry.deflateTask = new DeflateTask(image, inMemoryThreshold);
+            pendingEntry.deflated = deflatePool.submit(pendingEntry.deflateTask);
+        }
+
+        pending.add(pendingEntry);
+
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.peek().isReady())) {
+            write(pending.poll());
+        }
+    }
+
+    /**
+     * Drops all entries which are not written yet.
+     */
+    void abort() {
+        closed = true;
+
+        for (PendingEntry pendingEntry : pending) {
+            pendingEntry.discard();
+        }
+
+        pending.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            out.close();
+            return;
+        }
+
+        closed = true;
+
+        try {
+            while (!pending.isEmpty()) {
+                write(pending.poll());
+            }
+
+            writeCentralDirectory();
+        } finally {
+            abort();
+            out.close();
+        }
+    }
+
+    private long getOffset() {
+        return startOffset + out.getCount();
+    }
+
+    private void write(PendingEntry pendingEntry) throws IOException {
+        Entry entry = pendingEntry.entry;
+
+        try {
+            FileBackedOutputStream data = pendingEntry.getData();
+
+            try (InputStream in = data != null
+                    ? data.asByteSource().openStream()
+                    : pendingEntry.image.openInputStream()) {
+                entry.offset = getOffset();
+                writeLocalHeader(entry);
+                entry.compressedSize = StreamHelper.copy(in, out);
+
+                if (entry.compressedSize > MAX_SIZE) {
+                    throw new ZipException("Too large for a zip file without ZIP64: " + entry.name);
+                }
+
+                if (entry.hasDataDescriptor()) {
+                    writeInt(DATA_DESCRIPTOR);
+                    writeInt(entry.crc);
+                    writeInt(entry.compressedSize);
+                    writeInt(entry.size);
+                }
+            }
+
+            written.add(entry);
+        } finally {
+            pendingEntry.discard();
+        }
+
+        if (listener != null) {
+            out.flush();
+            listener.entryWritten(entry);
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        byte[] name = entry.getNameBytes();
+
+        writeInt(LOCAL_HEADER);
+        writeShort(entry.getVersion());
+        writeShort(entry.getFlag());
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+
+        if (entry.hasDataDescriptor()) {
+            writeInt(0);
+            writeInt(0);
+            writeInt(0);
+        } else {
+            writeInt(entry.crc);
+            writeInt(entry.size);
+            writeInt(entry.size);
+        }
+
+        writeShort(name.length);
+        writeShort(0);
+        out.write(name);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long offset = getOffset();
+
+        for (Entry entry : written) {
+            byte[] name = entry.getNameBytes();
+
+            writeInt(CENTRAL_HEADER);
+            writeShort(entry.getVersion());
+            writeShort(entry.getVersion());
+            writeShort(entry.getFlag());
+            writeShort(entry.method);
+            writeInt(entry.dosTime);
+            writeInt(entry.crc);
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+            writeShort(name.length);
+            writeShort(0); // extra field length
+            writeShort(0); // comment length
+            writeShort(0); // disk number
+            writeShort(0); // internal attributes
+            writeInt(0); // external attributes
+            writeInt(entry.offset);
+            out.write(name);
+        }
+
+        long size = getOffset() - offset;
+
+        if (offset > MAX_SIZE) {
+            throw new ZipException("Too large for a zip file without ZIP64");
+        }
+
+        writeInt(END_OF_CENTRAL_DIRECTORY);
+        writeShort(0);
+        writeShort(0);
+        writeShort(written.size());
+        writeShort(written.size());
+        writeInt(size);
+        writeInt(offset);
+        writeShort(0);
+        out.flush();
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xffff));
+        writeShort((int) ((value >>> 16) & 0xffff));
+    }
+
+    // MS-DOS date and time in local time, like ZipEntry.setTime()
+    private static long toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    /**
+     * A written entry, everything the central directory needs.
+     */
+    static class Entry {
+
+        private final String name;
+        private final int method;
+        private final long dosTime;
+        private final long crc;
+        private final long size;
+        private long compressedSize;
+        private long offset;
+
+        Entry(String name, int method, long dosTime, long crc, long size) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.size = size;
+        }
+
+        Entry(String name, int method, long dosTime, long crc, long size, long compressedSize, long offset) {
+            this(name, method, dosTime, crc, size);
+            this.compressedSize = compressedSize;
+            this.offset = offset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getMethod() {
+            return method;
+        }
+
+        long getDosTime() {
+            return dosTime;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getCompressedSize() {
+            return compressedSize;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return the offset right after the entry and its data descriptor
+         */
+        long getEnd() {
+            return offset + 30 + getNameBytes().length + compressedSize
+                    + (hasDataDescriptor() ? 16 : 0);
+        }
+
+        private byte[] getNameBytes() {
+            return name.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private boolean hasDataDescriptor() {
+            return method != ZipEntry.STORED;
+        }
+
+        private int getFlag() {
+            return hasDataDescriptor() ? FLAG_UTF8 | FLAG_DATA_DESCRIPTOR : FLAG_UTF8;
+        }
+
+        private int getVersion() {
+            return method == ZipEntry.STORED ? 10 : 20;
+        }
+    }
+
+    private static class PendingEntry {
+
+        private final Entry entry;
+        private final ImageBuffer image;
+        private DeflateTask deflateTask;
+        private Future<FileBackedOutputStream> deflated;
+
+        PendingEntry(Entry entry, ImageBuffer image) {
+            this.entry = entry;
+            this.image = image;
+        }
+
+        boolean isReady() {
+            return deflated == null || deflated.isDone();
+        }
+
+        FileBackedOutputStream getData() throws IOException {
+            if (deflated == null) {
+                return null;
+            }
+
+            try {
+                return deflated.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while deflating " + entry.name, ex);
+            } catch (ExecutionException ex) {
+                throw new IOException("Error while deflating " + entry.name, ex.getCause());
+            }
+        }
+
+        // A deflate which already started still reads the image
+        void discard() {
+            if (deflateTask != null && !deflateTask.skip()) {
+                try {
+                    Uninterruptibles.getUninterruptibly(deflated).reset();
+                } catch (ExecutionException | IOException ex) {
+                }
+            }
+
+            try {
+                image.reset();
+            } catch (IOException ex) {
+            }
+        }
+    }
+    private static class DeflateTask implements Callable<FileBackedOutputStream> {
+
+        private final ImageBuffer image;
+        private final int inMemoryThreshold;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        DeflateTask(ImageBuffer image, int inMemoryThreshold) {
+            this.image = image;
+            this.inMemoryThreshold = inMemoryThreshold;
+        }
+
+        /**
+         * @return true, if the task hasn't started and won't start anymore
+         */
+        boolean skip() {
+            return started.compareAndSet(false, true);
+        }
+
+        @Override
+        public FileBackedOutputStream call() throws Exception {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+
+            FileBackedOutputStream data = new FileBackedOutputStream(inMemoryThreshold, true);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+            try (InputStream in = image.openInputStream();
+                    DeflaterOutputStream deflate = new DeflaterOutputStream(data, deflater, 512)) {
+                StreamHelper.copy(in, deflate);
+            } catch (IOException ex) {
+                data.reset();
+                throw ex;
+            } finally {
+                deflater.end();
+            }
+
+            return data;
+        }
+    }
+}
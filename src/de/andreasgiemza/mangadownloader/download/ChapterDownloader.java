@@ -0,0 +1,283 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import de.andreasgiemza.mangadownloader.data.Download;
+import de.andreasgiemza.mangadownloader.data.Image;
+import de.andreasgiemza.mangadownloader.data.LibraryIndex;
+import de.andreasgiemza.mangadownloader.helpers.FilenameHelper;
+import de.andreasgiemza.mangadownloader.http.CircuitOpenException;
+import de.andreasgiemza.mangadownloader.http.HttpStatusException;
+import de.andreasgiemza.mangadownloader.options.Options;
+import de.andreasgiemza.mangadownloader.sites.StreamingSite;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+
+/**
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+class ChapterDownloader implements Runnable {
+
+    // Cached image links which went stale are resolved once more
+    private final static int MAX_ATTEMPTS = 2;
+    private final DownloadScheduler scheduler;
+    private final Download download;
+    private boolean cachedImageLinks;
+
+    ChapterDownloader(DownloadScheduler scheduler, Download download) {
+        this.scheduler = scheduler;
+        this.download = download;
+    }
+
+    @Override
+    public void run() {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (!download(attempt < MAX_ATTEMPTS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true, if the cached image links were stale and have been
+     * removed, so the chapter has to be downloaded again
+     */
+    private boolean download(boolean retryStaleLinks) {
+        scheduler.setMessage(download, "Getting image links ...");
+
+        StreamedImageLinks imageLinks = new StreamedImageLinks();
+        Future<?> resolver = resolveImageLinks(imageLinks);
+
+        int numberOfImages;
+
+        try {
+            numberOfImages = imageLinks.size();
+        } catch (Exception ex) {
+            if (!defer(ex)) {
+                finish(Download.State.ERROR, "Error while getting image links!");
+            }
+            return false;
+        }
+
+        if (scheduler.isInterrupted()) {
+            resolver.cancel(true);
+            cancel();
+            return false;
+        }
+
+        int numberOfImagesDigits = String.valueOf(numberOfImages).length();
+
+        Path mangaFile = FilenameHelper.buildChapterPath(download.getManga(), download.getChapter());
+
+        // The images written by an earlier attempt are kept in the part file
+        try (PartialArchive archive = new PartialArchive(mangaFile, numberOfImages)) {
+            if (!Files.exists(mangaFile.getParent())) {
+                Files.createDirectories(mangaFile.getParent());
+            }
+
+            List<CbzWriter.Entry> entries = archive.resume();
+            Set<String> storedExtensions = Options.INSTANCE.getStoredExtensions();
+            ImageFetcher fetcher = new ImageFetcher(
+                    scheduler.getImageExecutor(),
+                    imageLinks,
+                    entries.size(),
+                    numberOfImages,
+                    Options.INSTANCE.getImageThreads(),
+                    Options.INSTANCE.getImageMemoryBudget());
+
+            try (CbzWriter cbz = new CbzWriter(
+                    archive.openPart(),
+                    entries,
+                    fetcher.getInMemoryThreshold(),
+                    archive)) {
+                try {
+                    for (int i = entries.size(); i < numberOfImages; i++) {
+                        if (scheduler.isInterrupted()) {
+                            resolver.cancel(true);
+                            cbz.abort();
+                            cancel();
+                            return false;
+                        }
+
+                        scheduler.setMessage(download, "Downloading image " + (i + 1) + " of " + numberOfImages + " ...");
+
+                        ImageBuffer image = fetcher.get(i);
+                        String extension = imageLinks.get(i).getExtension();
+                        ZipEntry ze = new ZipEntry(String.format("%0" + numberOfImagesDigits + "d", (i + 1)) + "." + extension);
+
+                        // Already compressed images gain nothing from deflate
+                        if (storedExtensions.contains(extension.toLowerCase())) {
+                            ze.setMethod(ZipEntry.STORED);
+                        }
+
+                        cbz.add(ze, image);
+                    }
+                } catch (Exception ex) {
+                    cbz.abort();
+                    throw ex;
+                }
+            } finally {
+                fetcher.cancel();
+            }
+
+            archive.complete();
+            LibraryIndex.INSTANCE.added(mangaFile);
+        } catch (Exception ex) {
+            // Before the cancel, which lets the resolver fail as well
+            boolean imageLinksFailed = imageLinks.hasFailed();
+            resolver.cancel(true);
+
+            if (defer(ex)) {
+                return false;
+            }
+
+            // The part file keeps the images written so far
+            if (retryStaleLinks && cachedImageLinks && isStale(ex)) {
+                ImageLinkCache.INSTANCE.remove(download.getSite(), download.getChapter());
+                return true;
+            }
+
+            if (imageLinksFailed) {
+                finish(Download.State.ERROR, "Error while getting image links!");
+            } else {
+                finish(Download.State.ERROR, "Error while downloading images!");
+            }
+            return false;
+        }
+
+        // A streaming resolver caches the links after handing out the last one
+        awaitResolver(resolver);
+        ImageLinkCache.INSTANCE.remove(download.getSite(), download.getChapter());
+        finish(Download.State.DONE, "Done!");
+
+        return false;
+    }
+
+    private Future<?> resolveImageLinks(final StreamedImageLinks imageLinks) {
+        List<Image> cached = ImageLinkCache.INSTANCE.get(download.getSite(), download.getChapter());
+        cachedImageLinks = cached != null;
+
+        if (cachedImageLinks) {
+            imageLinks.imageLinksResolved(cached);
+            return Futures.immediateFuture(null);
+        }
+
+        if (download.getSite() instanceof StreamingSite) {
+            final StreamingSite site = (StreamingSite) download.getSite();
+
+            return scheduler.getImageExecutor().submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        site.getChapterImageLinks(download.getChapter(), imageLinks);
+                        imageLinks.finished();
+                    } catch (Exception ex) {
+                        imageLinks.fail(ex);
+                        return;
+                    }
+
+                    cacheImageLinks(imageLinks);
+                }
+            });
+        }
+
+        try {
+            imageLinks.imageLinksResolved(download.getSite().getChapterImageLinks(download.getChapter()));
+        } catch (Exception ex) {
+            imageLinks.fail(ex);
+            return Futures.immediateFuture(null);
+        }
+
+        cacheImageLinks(imageLinks);
+
+        return Futures.immediateFuture(null);
+    }
+
+    private void cacheImageLinks(StreamedImageLinks imageLinks) {
+        if (imageLinks.hasFailed()) {
+            return;
+        }
+
+        try {
+            ImageLinkCache.INSTANCE.put(download.getSite(), download.getChapter(), imageLinks.getImages());
+        } catch (Exception ex) {
+        }
+    }
+
+    private static void awaitResolver(Future<?> resolver) {
+        try {
+            resolver.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException ex) {
+        }
+    }
+
+    // Links which expired before the cache noticed
+    private static boolean isStale(Exception ex) {
+        for (Throwable cause : Throwables.getCausalChain(ex)) {
+            if (cause instanceof HttpStatusException) {
+                int statusCode = ((HttpStatusException) cause).getStatusCode();
+
+                return statusCode == HttpURLConnection.HTTP_FORBIDDEN
+                        || statusCode == HttpURLConnection.HTTP_NOT_FOUND
+                        || statusCode == HttpURLConnection.HTTP_GONE;
+            }
+        }
+
+        return false;
+    }
+
+    // The host is known to be down, so try again once the other work is done
+    private boolean defer(Exception ex) {
+        for (Throwable cause : Throwables.getCausalChain(ex)) {
+            if (cause instanceof CircuitOpenException) {
+                return scheduler.defer(download, ((CircuitOpenException) cause).getHost());
+            }
+        }
+
+        return false;
+    }
+
+    private void cancel() {
+        finish(Download.State.CANCELLED, "Cancelled!");
+    }
+
+    private void finish(Download.State state, String message) {
+        if (download.compareAndSetState(Download.State.RUNNING, state)) {
+            scheduler.setMessage(download, message);
+        }
+    }
+}
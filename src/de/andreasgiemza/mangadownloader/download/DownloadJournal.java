@@ -0,0 +1,284 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import de.andreasgiemza.mangadownloader.data.Chapter;
+import de.andreasgiemza.mangadownloader.data.Download;
+import de.andreasgiemza.mangadownloader.data.Manga;
+import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.SiteHelper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of the download list: added and removed downloads and every
+ * state change. At startup the log is replayed in one pass, downloads which
+ * were running are pending again. Once the log holds many more records than
+ * there are downloads, it is rewritten with one record per download.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class DownloadJournal {
+
+    private final static int MAGIC = 0x444a524e;
+    private final static int VERSION = 1;
+    private final static byte ADDED = 1;
+    private final static byte STATE = 2;
+    private final static byte REMOVED = 3;
+    private final static int MIN_RECORDS_FOR_COMPACTION = 1000;
+    private final Path file;
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>();
+    private DataOutputStream out;
+    private int records = 0;
+
+    public DownloadJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the journal and opens it for writing.
+     *
+     * @return the downloads in the order they were added
+     */
+    public synchronized List<Download> load() {
+        List<Download> downloads = new ArrayList<>();
+
+        try {
+            if (Files.exists(file)) {
+                replay();
+            }
+
+            Map<String, Site> sites = new HashMap<>();
+
+            for (Entry entry : entries.values()) {
+                if (!sites.containsKey(entry.site)) {
+                    sites.put(entry.site, SiteHelper.getInstance(entry.site));
+                }
+
+                Site site = sites.get(entry.site);
+
+                if (site == null) {
+                    continue;
+                }
+
+                Download download = new Download(entry.id, site, entry.manga, entry.chapter);
+
+                if (entry.state == Download.State.RUNNING) {
+                    entry.state = Download.State.PENDING;
+                }
+
+                download.setState(entry.state);
+                download.setMessage(getMessage(entry.state));
+                downloads.add(download);
+            }
+
+            compact();
+        } catch (IOException ex) {
+            System.err.println("DownloadJournal.load() error: " + ex.getMessage());
+        }
+
+        return downloads;
+    }
+
+    public synchronized void added(Download download) {
+        Entry entry = new Entry(download.getId(),
+                download.getSite().getClass().getSimpleName(),
+                download.getManga(),
+                download.getChapter(),
+                download.getState());
+
+        entries.put(entry.id, entry);
+        append(entry, ADDED);
+    }
+
+    /**
+     * Records the state of the download if it changed since the last call.
+     */
+    public synchronized void stateChanged(Download download) {
+        Entry entry = entries.get(download.getId());
+        Download.State state = download.getState();
+
+        if (entry != null && entry.state != state) {
+            entry.state = state;
+            append(entry, STATE);
+        }
+    }
+
+    public synchronized void removed(Download download) {
+        Entry entry = entries.remove(download.getId());
+
+        if (entry != null) {
+            append(entry, REMOVED);
+        }
+    }
+
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+            }
+
+            out = null;
+        }
+    }
+
+    private void replay() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+
+            while (true) {
+                byte type = in.readByte();
+                int id = in.readInt();
+
+                if (type == ADDED) {
+                    String site = in.readUTF();
+                    Manga manga = new Manga(in.readUTF(), in.readUTF());
+                    Chapter chapter = new Chapter(in.readUTF(), in.readUTF());
+                    entries.put(id, new Entry(id, site, manga, chapter, Download.State.values()[in.readByte()]));
+                } else if (type == STATE) {
+                    Download.State state = Download.State.values()[in.readByte()];
+
+                    if (entries.containsKey(id)) {
+                        entries.get(id).state = state;
+                    }
+                } else if (type == REMOVED) {
+                    entries.remove(id);
+                } else {
+                    throw new IOException("Unknown record type " + type);
+                }
+            }
+        } catch (EOFException ex) {
+            // End of the journal, the last record may be incomplete
+        } catch (IOException | ArrayIndexOutOfBoundsException ex) {
+            System.err.println("DownloadJournal.replay() error: " + ex.getMessage());
+        }
+    }
+
+    private void append(Entry entry, byte type) {
+        if (out == null) {
+            return;
+        }
+
+        try {
+            write(out, entry, type);
+            out.flush();
+            records++;
+
+            if (records >= MIN_RECORDS_FOR_COMPACTION && records > 2 * entries.size()) {
+                compact();
+            }
+        } catch (IOException ex) {
+            System.err.println("DownloadJournal.append() error: " + ex.getMessage());
+        }
+    }
+
+    // Writes the live entries into a new file and replaces the journal with it
+    private void compact() throws IOException {
+        close();
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream temp = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            temp.writeInt(MAGIC);
+            temp.writeInt(VERSION);
+
+            for (Entry entry : entries.values()) {
+                write(temp, entry, ADDED);
+            }
+        }
+
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        records = entries.size();
+        out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.APPEND)));
+    }
+
+    private static void write(DataOutputStream out, Entry entry, byte type) throws IOException {
+        out.writeByte(type);
+        out.writeInt(entry.id);
+
+        if (type == ADDED) {
+            out.writeUTF(entry.site);
+            out.writeUTF(entry.manga.getLink());
+            out.writeUTF(entry.manga.getTitle());
+            out.writeUTF(entry.chapter.getLink());
+            out.writeUTF(entry.chapter.getTitle());
+            out.writeByte(entry.state.ordinal());
+        } else if (type == STATE) {
+            out.writeByte(entry.state.ordinal());
+        }
+    }
+
+    private static String getMessage(Download.State state) {
+        switch (state) {
+            case DONE:
+                return "Done!";
+            case CANCELLED:
+                return "Cancelled!";
+            case ERROR:
+                return "Error!";
+            default:
+                return "Pending";
+        }
+    }
+
+    private static class Entry {
+
+        private final int id;
+        private final String site;
+        private final Manga manga;
+        private final Chapter chapter;
+        private Download.State state;
+
+        Entry(int id, String site, Manga manga, Chapter chapter, Download.State state) {
+            this.id = id;
+            this.site = site;
+            this.manga = manga;
+            this.chapter = chapter;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.andreasgiemza.mangadownloader.data.Download;
+import de.andreasgiemza.mangadownloader.http.CircuitBreaker;
+import de.andreasgiemza.mangadownloader.http.CircuitBreakers;
+import de.andreasgiemza.mangadownloader.options.Options;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the queued chapter downloads on a pool of worker threads. Every worker
+ * takes the next open download from a shared queue, so up to the configured
+ * number of chapters are downloaded at the same time. The images of the
+ * chapters are resolved and fetched on a second pool which is shared by all
+ * workers.
+ *
+ * Downloads which failed because the circuit breaker of a host is open are put
+ * back at the end of the queue, and all downloads of that site wait there until
+ * the breaker lets requests through again.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class DownloadScheduler {
+
+    private final static long MAX_DEFER_TIME = TimeUnit.MINUTES.toMillis(30);
+    // Longest wait before the queue is checked again
+    private final static long MAX_WAIT = TimeUnit.SECONDS.toMillis(1);
+    private final Queue<Download> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, String> blockedHosts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Download, Long> deferredSince = new ConcurrentHashMap<>();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final DownloadListener listener;
+    private final int workers;
+    private ExecutorService imageExecutor;
+    private volatile boolean interrupted = false;
+
+    public DownloadScheduler(List<Download> downloads, int workers, DownloadListener listener) {
+        this.listener = listener;
+        this.workers = workers;
+
+        for (Download download : downloads) {
+            if (download.getState() != Download.State.DONE) {
+                queue.add(download);
+            }
+        }
+    }
+
+    public void start() {
+        int count = Math.max(1, Math.min(workers, queue.size()));
+        runningWorkers.set(count);
+
+        imageExecutor = Executors.newFixedThreadPool(
+                count * (Options.INSTANCE.getImageThreads() + 1),
+                new ThreadFactoryBuilder().setNameFormat("Image-%d").setDaemon(true).build());
+
+        for (int i = 0; i < count; i++) {
+            Thread worker = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        Download download;
+
+                        while (!interrupted && (download = next()) != null) {
+                            new ChapterDownloader(DownloadScheduler.this, download).run();
+                        }
+                    } finally {
+                        if (runningWorkers.decrementAndGet() == 0) {
+                            imageExecutor.shutdownNow();
+
+                            for (Download download : deferredSince.keySet()) {
+                                if (download.getState() == Download.State.PENDING) {
+                                    setMessage(download, "Pending");
+                                }
+                            }
+
+                            listener.downloadsFinished();
+                        }
+                    }
+                }
+            }, "Download-" + (i + 1));
+
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    public void stop() {
+        interrupted = true;
+    }
+
+    boolean isInterrupted() {
+        return interrupted;
+    }
+
+    ExecutorService getImageExecutor() {
+        return imageExecutor;
+    }
+
+    void setMessage(Download download, String message) {
+        download.setMessage(message);
+        listener.downloadChanged(download);
+    }
+
+    boolean defer(Download download, String host) {
+        long now = System.currentTimeMillis();
+        deferredSince.putIfAbsent(download, now);
+
+        if (now - deferredSince.get(download) > MAX_DEFER_TIME) {
+            return false;
+        }
+
+        blockedHosts.put(download.getSite().getName(), host);
+
+        if (download.compareAndSetState(Download.State.RUNNING, Download.State.PENDING)) {
+            setMessage(download, "Waiting for " + host + " ...");
+            queue.add(download);
+            return true;
+        }
+
+        return false;
+    }
+
+    private Download next() {
+        while (!interrupted) {
+            long wait = Long.MAX_VALUE;
+
+            for (int i = queue.size(); i > 0; i--) {
+                Download download = queue.poll();
+
+                if (download == null) {
+                    break;
+                }
+
+                Download.State state = download.getState();
+
+                if (state == Download.State.DONE || state == Download.State.RUNNING) {
+                    continue;
+                }
+
+                long retryIn = getRetryIn(download);
+
+                if (retryIn > 0) {
+                    queue.add(download);
+                    wait = Math.min(wait, retryIn);
+                } else if (download.compareAndSetState(state, Download.State.RUNNING)) {
+                    return download;
+                }
+            }
+
+            if (queue.isEmpty()) {
+                return null;
+            }
+
+            if (wait != Long.MAX_VALUE) {
+                try {
+                    Thread.sleep(Math.min(wait, MAX_WAIT));
+                } catch (InterruptedException ex) {
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private long getRetryIn(Download download) {
+        String site = download.getSite().getName();
+        String host = blockedHosts.get(site);
+
+        if (host == null) {
+            return 0;
+        }
+
+        CircuitBreaker breaker = CircuitBreakers.INSTANCE.get(host);
+
+        if (breaker.allowsRequests()) {
+            blockedHosts.remove(site, host);
+            return 0;
+        }
+
+        long retryIn = breaker.getRetryIn();
+
+        // Half open, the trial request can take as long as its timeouts
+        return retryIn > 0 ? retryIn : MAX_WAIT;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import com.google.common.io.ByteSink;
+import com.google.common.io.FileBackedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Holds one fetched image. The size and CRC-32 are computed while the image is
+ * written, so it can be stored in the archive without another pass. Every
+ * openStream() starts over, which is what a retried download needs.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+class ImageBuffer extends ByteSink {
+
+    private final FileBackedOutputStream data;
+    private final CRC32 crc = new CRC32();
+    private long size = 0;
+
+    ImageBuffer(int inMemoryThreshold) {
+        data = new FileBackedOutputStream(inMemoryThreshold, true);
+    }
+
+    @Override
+    public OutputStream openStream() throws IOException {
+        reset();
+
+        return new FilterOutputStream(data) {
+
+            @Override
+            public void write(int b) throws IOException {
+                data.write(b);
+                crc.update(b);
+                size++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                data.write(b, off, len);
+                crc.update(b, off, len);
+                size += len;
+            }
+
+            @Override
+            public void close() throws IOException {
+                data.flush();
+            }
+        };
+    }
+
+    InputStream openInputStream() throws IOException {
+        return data.asByteSource().openStream();
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getCrc() {
+        return crc.getValue();
+    }
+
+    /**
+     * Frees the memory and removes the temporary file.
+     */
+    void reset() throws IOException {
+        data.reset();
+        crc.reset();
+        size = 0;
+    }
+}
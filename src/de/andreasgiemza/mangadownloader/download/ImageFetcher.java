@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import de.andreasgiemza.mangadownloader.data.Image;
+import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches the images of one chapter ahead of the archive writer, as soon as
+ * their links are resolved. At most
+ * window images are in flight and no new fetch is started while the already
+ * fetched but not yet written images exceed the memory budget. The image the
+ * writer is waiting for is always fetched, so a single huge image can't stall
+ * the chapter.
+ *
+ * Every image is streamed into its own ImageBuffer. Only the first bytes of an
+ * image stay on the heap, the rest spills into a temporary file, so large
+ * images don't need more memory than small ones. The caller has to reset the
+ * returned buffer once it is written.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+class ImageFetcher {
+
+    private final static int MAX_IN_MEMORY = 1024 * 1024;
+    private final ExecutorService executor;
+    private final StreamedImageLinks imageLinks;
+    private final int numberOfImages;
+    private final List<Future<ImageBuffer>> futures;
+    private final int window;
+    private final long memoryBudget;
+    private final int inMemoryThreshold;
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private int submitted = 0;
+
+    /**
+     * @param firstIndex the first image to fetch, the ones before are already
+     * written
+     */
+    ImageFetcher(ExecutorService executor, StreamedImageLinks imageLinks, int firstIndex, int numberOfImages, int window, long memoryBudget) {
+        this.executor = executor;
+        this.imageLinks = imageLinks;
+        this.numberOfImages = numberOfImages;
+        this.futures = new ArrayList<>(numberOfImages);
+        this.window = window;
+        this.memoryBudget = memoryBudget;
+        this.inMemoryThreshold = (int) Math.max(1, Math.min(MAX_IN_MEMORY, memoryBudget / window));
+
+        for (; submitted < firstIndex; submitted++) {
+            futures.add(null);
+        }
+    }
+
+    ImageBuffer get(int index) throws Exception {
+        while (submitted < numberOfImages
+                && (submitted <= index
+                || (submitted - index < window && bufferedBytes.get() < memoryBudget))) {
+            submit(submitted);
+            submitted++;
+        }
+
+        ImageBuffer image;
+
+        try {
+            image = futures.get(index).get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+
+            throw ex;
+        }
+
+        futures.set(index, null);
+        bufferedBytes.addAndGet(-Math.min(inMemoryThreshold, image.getSize()));
+
+        return image;
+    }
+
+    int getInMemoryThreshold() {
+        return inMemoryThreshold;
+    }
+
+    void cancel() {
+        for (Future<ImageBuffer> future : futures) {
+            if (future != null && !future.cancel(true) && !future.isCancelled()) {
+                reset(future);
+            }
+        }
+    }
+
+    private void submit(final int index) {
+        futures.add(executor.submit(new Callable<ImageBuffer>() {
+
+            @Override
+            public ImageBuffer call() throws Exception {
+                Image image = imageLinks.get(index);
+                ImageBuffer data = new ImageBuffer(inMemoryThreshold);
+
+                try {
+                    if (image.getLinkFragment() == null) {
+                        JsoupHelper.getImage(image.getLink(), image.getReferrer(), data);
+                    } else {
+                        data.write(JsoupHelper.getImageWithFragment(image));
+                    }
+                } catch (Exception ex) {
+                    data.reset();
+                    throw ex;
+                }
+
+                bufferedBytes.addAndGet(Math.min(inMemoryThreshold, data.getSize()));
+
+                return data;
+            }
+        }));
+    }
+
+    // Removes the temporary file of an image which will never be written
+    private static void reset(Future<ImageBuffer> future) {
+        try {
+            future.get().reset();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException ex) {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import de.andreasgiemza.mangadownloader.data.Chapter;
+import de.andreasgiemza.mangadownloader.data.Image;
+import de.andreasgiemza.mangadownloader.helpers.FilenameHelper;
+import de.andreasgiemza.mangadownloader.options.Options;
+import de.andreasgiemza.mangadownloader.sites.Site;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Keeps the resolved image links of the chapters which weren't finished, so
+ * a retry or resume doesn't have to load the reader pages again. The links
+ * expire after a while, because some sites hand out image links which are
+ * only valid for a limited time.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+enum ImageLinkCache {
+
+    INSTANCE;
+
+    private final Gson gson = new Gson();
+
+    ImageLinkCache() {
+        Thread sweeper = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, "ImageLinkCache");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    /**
+     * @return the cached image links or null, if there are none or they have
+     * expired
+     */
+    List<Image> get(Site site, Chapter chapter) {
+        Path file = getFile(site, chapter);
+        Entry entry;
+
+        try {
+            entry = gson.fromJson(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), Entry.class);
+        } catch (IOException | JsonParseException ex) {
+            return null;
+        }
+
+        if (entry == null || entry.images == null
+                || System.currentTimeMillis() - entry.resolved > Options.INSTANCE.getImageLinkTtl()) {
+            remove(site, chapter);
+            return null;
+        }
+
+        return entry.images;
+    }
+
+    void put(Site site, Chapter chapter, List<Image> images) {
+        try {
+            Path file = getFile(site, chapter);
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+            Files.createDirectories(file.getParent());
+            Files.write(tempFile, gson.toJson(new Entry(System.currentTimeMillis(), images)).getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+        }
+    }
+
+    void remove(Site site, Chapter chapter) {
+        try {
+            Files.deleteIfExists(getFile(site, chapter));
+        } catch (IOException ex) {
+        }
+    }
+
+    // Links of chapters which were never finished aren't read again
+    private static void sweep() {
+        long expired = System.currentTimeMillis() - Options.INSTANCE.getImageLinkTtl();
+
+        try (DirectoryStream<Path> siteDirs = Files.newDirectoryStream(Options.INSTANCE.getImageLinkDir())) {
+            for (Path siteDir : siteDirs) {
+                if (!Files.isDirectory(siteDir)) {
+                    continue;
+                }
+
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(siteDir)) {
+                    for (Path file : files) {
+                        if (Files.getLastModifiedTime(file).toMillis() < expired) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                } catch (IOException ex) {
+                }
+            }
+        } catch (IOException ex) {
+        }
+    }
+
+    private static Path getFile(Site site, Chapter chapter) {
+        return Options.INSTANCE.getImageLinkDir()
+                .resolve(FilenameHelper.checkForIllegalCharacters(site.getName()))
+                .resolve(Hashing.sha1().hashString(chapter.getLink(), StandardCharsets.UTF_8) + ".json");
+    }
+
+    private static class Entry {
+
+        private final long resolved;
+        private final List<Image> images;
+
+        Entry(long resolved, List<Image> images) {
+            this.resolved = resolved;
+            this.images = images;
+        }
+    }
+}
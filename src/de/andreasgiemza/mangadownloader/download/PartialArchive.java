@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chapter archive while it is written. The data goes into "name.cbz.part"
+ * and every completed entry is recorded in "name.cbz.part.idx". Only a
+ * complete archive is renamed to its real name, so a crash never leaves a
+ * broken .cbz behind, and the next download of the chapter continues after the
+ * last recorded entry.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+class PartialArchive implements CbzWriter.Listener, Closeable {
+
+    private final static int MAGIC = 0x43425a50;
+    private final static int VERSION = 1;
+    private final Path file;
+    private final Path partFile;
+    private final Path indexFile;
+    private final int numberOfImages;
+    private DataOutputStream index;
+
+    PartialArchive(Path file, int numberOfImages) {
+        this.file = file;
+        this.partFile = file.resolveSibling(file.getFileName() + ".part");
+        this.indexFile = file.resolveSibling(file.getFileName() + ".part.idx");
+        this.numberOfImages = numberOfImages;
+    }
+
+    /**
+     * Reads the entries of an earlier attempt and cuts off everything in the
+     * part file behind the last of them.
+     *
+     * @return the entries which don't have to be downloaded again
+     */
+    List<CbzWriter.Entry> resume() throws IOException {
+        List<CbzWriter.Entry> entries = readIndex();
+        long end = entries.isEmpty() ? 0 : entries.get(entries.size() - 1).getEnd();
+
+        try (FileChannel part = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            part.truncate(end);
+        }
+
+        index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)));
+        index.writeInt(MAGIC);
+        index.writeInt(VERSION);
+        index.writeInt(numberOfImages);
+
+        for (CbzWriter.Entry entry : entries) {
+            writeEntry(entry);
+        }
+
+        index.flush();
+
+        return entries;
+    }
+
+    OutputStream openPart() throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(partFile.toFile(), true));
+    }
+
+    @Override
+    public void entryWritten(CbzWriter.Entry entry) throws IOException {
+        writeEntry(entry);
+        index.flush();
+    }
+
+    /**
+     * Moves the finished archive to its real name.
+     */
+    void complete() throws IOException {
+        close();
+
+        try {
+            Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Files.deleteIfExists(indexFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+    }
+
+    private List<CbzWriter.Entry> readIndex() {
+        List<CbzWriter.Entry> entries = new ArrayList<>();
+
+        if (!Files.exists(partFile) || !Files.exists(indexFile)) {
+            return entries;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != numberOfImages) {
+                return entries;
+            }
+
+            long partSize = Files.size(partFile);
+
+            while (entries.size() < numberOfImages) {
+                CbzWriter.Entry entry = new CbzWriter.Entry(
+                        in.readUTF(),
+                        in.readUnsignedByte(),
+                        in.readLong(),
+                        in.readLong(),
+                        in.readLong(),
+                        in.readLong(),
+                        in.readLong());
+
+                // The index may be ahead of the data after a crash
+                if (entry.getEnd() > partSize) {
+                    break;
+                }
+
+                entries.add(entry);
+            }
+        } catch (EOFException ex) {
+            // The last record was not written completely
+        } catch (IOException ex) {
+            entries.clear();
+        }
+
+        return entries;
+    }
+
+    private void writeEntry(CbzWriter.Entry entry) throws IOException {
+        index.writeUTF(entry.getName());
+        index.writeByte(entry.getMethod());
+        index.writeLong(entry.getDosTime());
+        index.writeLong(entry.getCrc());
+        index.writeLong(entry.getSize());
+        index.writeLong(entry.getCompressedSize());
+        index.writeLong(entry.getOffset());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.download;
+
+import com.google.common.util.concurrent.SettableFuture;
+import de.andreasgiemza.mangadownloader.data.Image;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Image links of a chapter which become available one after another while
+ * the site is still resolving the reader pages. Readers block until the
+ * requested value is resolved or the resolving failed.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+class StreamedImageLinks implements ImageLinkListener {
+
+    private final SettableFuture<Integer> count = SettableFuture.create();
+    private volatile List<SettableFuture<Image>> images = new ArrayList<>();
+    private volatile boolean failed = false;
+
+    @Override
+    public void imageCountResolved(int count) {
+        List<SettableFuture<Image>> futures = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            futures.add(SettableFuture.<Image>create());
+        }
+
+        images = futures;
+        this.count.set(count);
+    }
+
+    @Override
+    public void imageLinkResolved(int index, Image image) {
+        images.get(index).set(image);
+    }
+
+    void imageLinksResolved(List<Image> imageLinks) {
+        imageCountResolved(imageLinks.size());
+
+        for (int i = 0; i < imageLinks.size(); i++) {
+            imageLinkResolved(i, imageLinks.get(i));
+        }
+    }
+
+    void finished() {
+        Exception ex = new IllegalStateException("Site didn't resolve all image links!");
+
+        if (count.setException(ex)) {
+            failed = true;
+        }
+
+        for (SettableFuture<Image> image : images) {
+            if (image.setException(ex)) {
+                failed = true;
+            }
+        }
+    }
+
+    void fail(Exception ex) {
+        failed = true;
+        count.setException(ex);
+
+        for (SettableFuture<Image> image : images) {
+            image.setException(ex);
+        }
+    }
+
+    boolean hasFailed() {
+        return failed;
+    }
+
+    int size() throws Exception {
+        return getValue(count);
+    }
+
+    Image get(int index) throws Exception {
+        size();
+
+        return getValue(images.get(index));
+    }
+
+    List<Image> getImages() throws Exception {
+        List<Image> resolved = new ArrayList<>(size());
+
+        for (int i = 0; i < size(); i++) {
+            resolved.add(get(i));
+        }
+
+        return resolved;
+    }
+
+    private static <T> T getValue(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+
+            throw ex;
+        }
+    }
+}
@@ -24,12 +24,15 @@
 package de.andreasgiemza.mangadownloader.gui.chapter;
 
 import de.andreasgiemza.mangadownloader.MangaDownloader;
-import de.andreasgiemza.mangadownloader.helpers.RegexHelper;
+import de.andreasgiemza.mangadownloader.search.BitSetRowFilter;
+import de.andreasgiemza.mangadownloader.search.DebouncedSearch;
+import java.util.BitSet;
 import javax.swing.JTable;
 import javax.swing.JTextField;
-import javax.swing.RowFilter;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import javax.swing.table.TableRowSorter;
 
 /**
@@ -41,12 +44,34 @@ public class ChapterListSearchDocumentListener implements DocumentListener {
     private final MangaDownloader mangaDownloader;
     private final JTextField chapterListSearchTextField;
     private final TableRowSorter<ChapterTableModel> chapterTableRowSorter;
+    private final DebouncedSearch chapterSearch;
 
     @SuppressWarnings("unchecked")
     public ChapterListSearchDocumentListener(MangaDownloader mangaDownloader, JTextField chapterListSearchTextField, JTable chapterListTable) {
         this.mangaDownloader = mangaDownloader;
         this.chapterListSearchTextField = chapterListSearchTextField;
         chapterTableRowSorter = (TableRowSorter<ChapterTableModel>) chapterListTable.getRowSorter();
+
+        chapterSearch = new DebouncedSearch(new DebouncedSearch.Listener() {
+
+            @Override
+            public void searchFinished(BitSet rows) {
+                chapterTableRowSorter.setRowFilter(rows != null ? new BitSetRowFilter<ChapterTableModel>(rows) : null);
+            }
+        });
+
+        final ChapterTableModel chapterTableModel = chapterTableRowSorter.getModel();
+        chapterSearch.setTitles(chapterTableModel.getTitles());
+        chapterTableModel.addTableModelListener(new TableModelListener() {
+
+            @Override
+            public void tableChanged(TableModelEvent e) {
+                // Only when the chapters were replaced, not for a single row
+                if (e.getLastRow() == Integer.MAX_VALUE) {
+                    chapterSearch.setTitles(chapterTableModel.getTitles());
+                }
+            }
+        });
     }
 
     @Override
@@ -68,12 +93,6 @@ public class ChapterListSearchDocumentListener implements DocumentListener {
     private void changed() {
         mangaDownloader.chapterSearchChanged();
 
-        final String searchText = chapterListSearchTextField.getText();
-
-        if (searchText.length() == 0) {
-            chapterTableRowSorter.setRowFilter(null);
-        } else if (searchText.length() > 0) {
-            chapterTableRowSorter.setRowFilter(RowFilter.regexFilter(RegexHelper.build(searchText)));
-        }
+        chapterSearch.search(chapterListSearchTextField.getText());
     }
 }
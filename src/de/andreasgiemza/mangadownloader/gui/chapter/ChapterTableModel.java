@@ -24,6 +24,7 @@
 package de.andreasgiemza.mangadownloader.gui.chapter;
 
 import de.andreasgiemza.mangadownloader.data.Chapter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import javax.swing.table.AbstractTableModel;
@@ -100,4 +101,14 @@ public class ChapterTableModel extends AbstractTableModel {
     public List<Chapter> getChapters() {
         return chapters;
     }
+
+    public List<String> getTitles() {
+        List<String> titles = new ArrayList<>(chapters.size());
+
+        for (Chapter chapter : chapters) {
+            titles.add(chapter.getTitle());
+        }
+
+        return titles;
+    }
 }
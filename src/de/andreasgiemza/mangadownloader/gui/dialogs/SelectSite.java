@@ -23,18 +23,33 @@
  */
 package de.andreasgiemza.mangadownloader.gui.dialogs;
 
+import com.google.common.base.Joiner;
+import com.google.common.net.InternetDomainName;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import de.andreasgiemza.mangadownloader.MangaDownloader;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.data.MangaList;
 import de.andreasgiemza.mangadownloader.gui.site.SiteTableModel;
 import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.extend.PageCrawler;
 import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import javax.swing.JOptionPane;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 
 /**
  *
@@ -89,6 +104,38 @@ public class SelectSite extends javax.swing.JDialog {
                 .getSite(sitesTable.convertRowIndexToModel(selectedRow));
     }
 
+    private void setButtonsEnabled(boolean enabled) {
+        selectButton.setEnabled(enabled);
+        updateButton.setEnabled(enabled);
+        updateAllButton.setEnabled(enabled);
+    }
+
+    private String formatTime(long start) {
+        return String.format("%.1f s", (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    // Subdomains like es.mangahere.co are served by the same servers
+    private static String getHost(Site site) {
+        String host;
+
+        try {
+            host = new URL(site.getUrl()).getHost();
+        } catch (MalformedURLException ex) {
+            return site.getName();
+        }
+
+        try {
+            InternetDomainName domainName = InternetDomainName.from(host);
+
+            if (domainName.isUnderPublicSuffix()) {
+                return domainName.topPrivateDomain().toString();
+            }
+        } catch (IllegalArgumentException ex) {
+        }
+
+        return host;
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -209,10 +256,8 @@ public class SelectSite extends javax.swing.JDialog {
 
             @Override
             public void run() {
-                List<Manga> mangas;
-
                 try {
-                    mangas = selectedSite.getMangaList();
+                    MangaList.refresh(selectedSite);
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(
                             loading,
@@ -224,9 +269,6 @@ public class SelectSite extends javax.swing.JDialog {
                     return;
                 }
 
-                // Save data to file
-                MangaList.save(selectedSite, mangas);
-
                 loading.dispose();
 
                 ((SiteTableModel) sitesTable.getModel()).fireTableDataChanged();
@@ -242,45 +284,98 @@ public class SelectSite extends javax.swing.JDialog {
     }//GEN-LAST:event_cancelButtonActionPerformed
 
     private void updateAllButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_updateAllButtonActionPerformed
-        final List<Site> sites = ((SiteTableModel) sitesTable.getModel()).getSites();
+        final SiteTableModel siteTableModel = (SiteTableModel) sitesTable.getModel();
+        final List<Site> sites = siteTableModel.getSites();
 
-        if (sites == null) {
+        if (sites == null || sites.isEmpty()) {
             return;
         }
 
-        final Loading loading = new Loading(parentFrame, true);
-        loading.startRunnable(new Runnable() {
+        setButtonsEnabled(false);
+
+        final PageCrawler.ProgressListener progressListener = new PageCrawler.ProgressListener() {
 
             @Override
-            public void run() {
-                String errors = "";
+            public void pageCrawled(Site site, int crawledPages, int pages) {
+                if (sites.contains(site)) {
+                    siteTableModel.setStatus(site, "Updating ... page " + crawledPages + " of " + pages);
+                }
+            }
+        };
+        PageCrawler.addProgressListener(progressListener);
+
+        // Hosts are updated at once, sites sharing a host one after another
+        Map<String, List<Site>> sitesByHost = new LinkedHashMap<>();
+
+        for (Site site : sites) {
+            String host = getHost(site);
+            List<Site> hostSites = sitesByHost.get(host);
+            if (hostSites == null) {
+                hostSites = new ArrayList<>();
+                sitesByHost.put(host, hostSites);
+            }
+
+            hostSites.add(site);
+            siteTableModel.setStatus(site, "Waiting ...");
+        }
 
-                for (Site site : sites) {
-                    List<Manga> mangas;
+        final ExecutorService executor = Executors.newFixedThreadPool(sitesByHost.size(),
+                new ThreadFactoryBuilder().setNameFormat("UpdateAll-%d").setDaemon(true).build());
+        final Queue<String> errors = new ConcurrentLinkedQueue<>();
 
-                    try {
-                        mangas = site.getMangaList();
+        for (final List<Site> hostSites : sitesByHost.values()) {
+            executor.execute(new Runnable() {
 
-                        // Save data to file
-                        MangaList.save(site, mangas);
-                    } catch (Exception ex) {
-                        errors += "Cant't connect to " + site.getName() + "!\n";
+                @Override
+                public void run() {
+                    for (Site site : hostSites) {
+                        long start = System.currentTimeMillis();
+                        siteTableModel.setStatus(site, "Updating ...");
+
+                        try {
+                            List<Manga> mangas = MangaList.refresh(site);
+
+                            siteTableModel.setStatus(site, mangas.size() + " mangas in " + formatTime(start));
+                        } catch (Exception ex) {
+                            siteTableModel.setStatus(site, "Error after " + formatTime(start));
+                            errors.add("Cant't connect to " + site.getName() + "!");
+                        }
                     }
                 }
+            });
+        }
 
-                if (!errors.isEmpty()) {
-                    JOptionPane.showMessageDialog(
-                            loading,
-                            errors,
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
+        executor.shutdown();
+
+        new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
                 }
 
-                loading.dispose();
+                PageCrawler.removeProgressListener(progressListener);
 
-                ((SiteTableModel) sitesTable.getModel()).fireTableDataChanged();
+                SwingUtilities.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        siteTableModel.fireTableDataChanged();
+                        setButtonsEnabled(true);
+
+                        if (!errors.isEmpty()) {
+                            JOptionPane.showMessageDialog(
+                                    parentFrame,
+                                    Joiner.on("\n").join(errors),
+                                    "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                });
             }
-        });
+        }).start();
     }//GEN-LAST:event_updateAllButtonActionPerformed
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
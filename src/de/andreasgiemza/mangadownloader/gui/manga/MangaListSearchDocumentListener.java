@@ -24,12 +24,15 @@
 package de.andreasgiemza.mangadownloader.gui.manga;
 
 import de.andreasgiemza.mangadownloader.MangaDownloader;
-import de.andreasgiemza.mangadownloader.helpers.RegexHelper;
+import de.andreasgiemza.mangadownloader.search.BitSetRowFilter;
+import de.andreasgiemza.mangadownloader.search.DebouncedSearch;
+import java.util.BitSet;
 import javax.swing.JTable;
 import javax.swing.JTextField;
-import javax.swing.RowFilter;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import javax.swing.table.TableRowSorter;
 
 /**
@@ -41,6 +44,7 @@ public class MangaListSearchDocumentListener implements DocumentListener {
     private final MangaDownloader mangaDownloader;
     private final JTextField mangaListSearchTextField;
     private final TableRowSorter<MangaTableModel> mangaTableRowSorter;
+    private final DebouncedSearch mangaSearch;
 
     @SuppressWarnings("unchecked")
     public MangaListSearchDocumentListener(
@@ -50,6 +54,24 @@ public class MangaListSearchDocumentListener implements DocumentListener {
         this.mangaListSearchTextField = mangaListSearchTextField;
         mangaTableRowSorter = (TableRowSorter<MangaTableModel>) mangaListTable.getRowSorter();
         this.mangaDownloader = mangaDownloader;
+
+        mangaSearch = new DebouncedSearch(new DebouncedSearch.Listener() {
+
+            @Override
+            public void searchFinished(BitSet rows) {
+                mangaTableRowSorter.setRowFilter(rows != null ? new BitSetRowFilter<MangaTableModel>(rows) : null);
+            }
+        });
+
+        final MangaTableModel mangaTableModel = mangaTableRowSorter.getModel();
+        mangaSearch.setTitles(mangaTableModel.getTitles());
+        mangaTableModel.addTableModelListener(new TableModelListener() {
+
+            @Override
+            public void tableChanged(TableModelEvent e) {
+                mangaSearch.setTitles(mangaTableModel.getTitles());
+            }
+        });
     }
 
     @Override
@@ -69,12 +91,7 @@ public class MangaListSearchDocumentListener implements DocumentListener {
     }
 
     private void changed() {
-        final String searchText = mangaListSearchTextField.getText();
-        if (searchText.length() == 0) {
-            mangaTableRowSorter.setRowFilter(null);
-        } else if (searchText.length() > 0) {
-            mangaTableRowSorter.setRowFilter(RowFilter.regexFilter(RegexHelper.build(searchText)));
-        }
+        mangaSearch.search(mangaListSearchTextField.getText());
 
         mangaDownloader.mangaSearchChanged();
     }
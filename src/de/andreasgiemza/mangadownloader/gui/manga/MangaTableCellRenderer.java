@@ -23,11 +23,10 @@
  */
 package de.andreasgiemza.mangadownloader.gui.manga;
 
+import de.andreasgiemza.mangadownloader.data.LibraryIndex;
 import de.andreasgiemza.mangadownloader.data.Manga;
-import de.andreasgiemza.mangadownloader.helpers.FilenameHelper;
 import java.awt.Color;
 import java.awt.Component;
-import java.nio.file.Files;
 import javax.swing.JTable;
 import javax.swing.UIManager;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -46,7 +45,7 @@ public class MangaTableCellRenderer extends DefaultTableCellRenderer {
 
         if (isSelected) {
             c.setBackground(UIManager.getColor("Table.selectionBackground"));
-        } else if (Files.exists(FilenameHelper.buildMangaPath(manga))) {
+        } else if (LibraryIndex.INSTANCE.isDownloaded(manga)) {
             c.setBackground(Color.decode("#D2D2D2"));
         } else {
             c.setBackground(UIManager.getColor("Table.background"));
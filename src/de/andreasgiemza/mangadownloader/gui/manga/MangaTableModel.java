@@ -24,6 +24,7 @@
 package de.andreasgiemza.mangadownloader.gui.manga;
 
 import de.andreasgiemza.mangadownloader.data.Manga;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.List;
 import javax.swing.table.AbstractTableModel;
@@ -34,12 +35,20 @@ import javax.swing.table.AbstractTableModel;
  */
 public class MangaTableModel extends AbstractTableModel {
 
-    private final List<Manga> mangas;
+    private volatile List<Manga> mangas;
+    private volatile List<String> titles;
     private final List<String> columnNames = Arrays.asList(
             "Title");
 
     public MangaTableModel(List<Manga> mangas) {
         this.mangas = mangas;
+        this.titles = getTitles(mangas);
+    }
+
+    public void setMangas(List<Manga> mangas) {
+        this.mangas = mangas;
+        this.titles = getTitles(mangas);
+        fireTableDataChanged();
     }
 
     @Override
@@ -79,4 +88,24 @@ public class MangaTableModel extends AbstractTableModel {
     public Manga getMangaAt(int row) {
         return mangas.get(row);
     }
+
+    // The same view until the mangas are replaced
+    public List<String> getTitles() {
+        return titles;
+    }
+
+    private static List<String> getTitles(final List<Manga> mangas) {
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(int index) {
+                return mangas.get(index).getTitle();
+            }
+
+            @Override
+            public int size() {
+                return mangas.size();
+            }
+        };
+    }
 }
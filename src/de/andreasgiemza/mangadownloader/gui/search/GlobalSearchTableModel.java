@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.gui.search;
+
+import de.andreasgiemza.mangadownloader.data.Manga;
+import de.andreasgiemza.mangadownloader.sites.Site;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class GlobalSearchTableModel extends AbstractTableModel {
+
+    private final List<Site> sites = new ArrayList<>();
+    private final List<Manga> mangas = new ArrayList<>();
+    private final List<String> columnNames = Arrays.asList(
+            "Site",
+            "Title");
+
+    @Override
+    public int getRowCount() {
+        return mangas.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        switch (col) {
+            case 0:
+                return sites.get(row).getName();
+            case 1:
+                return mangas.get(row).getTitle();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return columnNames.get(col);
+    }
+
+    public Site getSite(int row) {
+        return sites.get(row);
+    }
+
+    public Manga getManga(int row) {
+        return mangas.get(row);
+    }
+
+    public void setHits(Map<Site, List<Manga>> hits) {
+        sites.clear();
+        mangas.clear();
+
+        for (Map.Entry<Site, List<Manga>> siteHits : hits.entrySet()) {
+            for (Manga manga : siteHits.getValue()) {
+                sites.add(siteHits.getKey());
+                mangas.add(manga);
+            }
+        }
+
+        fireTableDataChanged();
+    }
+}
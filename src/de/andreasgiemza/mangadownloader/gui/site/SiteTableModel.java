@@ -28,6 +28,9 @@ import de.andreasgiemza.mangadownloader.sites.Site;
 import de.andreasgiemza.mangadownloader.sites.SiteHelper;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.swing.SwingUtilities;
 import javax.swing.table.AbstractTableModel;
 
 /**
@@ -37,11 +40,13 @@ import javax.swing.table.AbstractTableModel;
 public class SiteTableModel extends AbstractTableModel {
 
     private final List<Site> sites = SiteHelper.getSites();
+    private final Map<Site, String> status = new ConcurrentHashMap<>();
     private final List<String> columnNames = Arrays.asList(
             "Name",
             "Language",
             "Watermarks",
-            "Last List update");
+            "Last List update",
+            "Status");
 
     @Override
     public int getRowCount() {
@@ -79,6 +84,10 @@ public class SiteTableModel extends AbstractTableModel {
                 } else {
                     return "no list present";
                 }
+            case 4:
+                String siteStatus = status.get(sites.get(row));
+
+                return siteStatus != null ? siteStatus : "";
             default:
                 return null;
         }
@@ -100,4 +109,20 @@ public class SiteTableModel extends AbstractTableModel {
     public List<Site> getSites() {
         return sites;
     }
+
+    public void setStatus(final Site site, String siteStatus) {
+        status.put(site, siteStatus);
+
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                int row = getIndexOf(site);
+
+                if (row >= 0) {
+                    fireTableRowsUpdated(row, row);
+                }
+            }
+        });
+    }
 }
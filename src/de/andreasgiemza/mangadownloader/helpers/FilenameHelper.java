@@ -60,13 +60,21 @@ public final class FilenameHelper {
         }
     }
 
+    public static String buildMangaDirName(Manga manga) {
+        return checkForValidDirectoryName(manga.getTitle());
+    }
+
+    public static String buildChapterFileName(Chapter chapter) {
+        return checkForIllegalCharacters(chapter.getTitle()) + ".cbz";
+    }
+
     public static Path buildMangaPath(Manga manga) {
         return Paths.get(Options.INSTANCE.getMangaDir())
-                .resolve(checkForValidDirectoryName(manga.getTitle()));
+                .resolve(buildMangaDirName(manga));
     }
 
     public static Path buildChapterPath(Manga manga, Chapter chapter) {
         return buildMangaPath(manga)
-                .resolve(checkForIllegalCharacters(chapter.getTitle()) + ".cbz");
+                .resolve(buildChapterFileName(chapter));
     }
 }
@@ -23,17 +23,40 @@
  */
 package de.andreasgiemza.mangadownloader.helpers;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.ByteSink;
 import de.andreasgiemza.mangadownloader.data.Image;
+import de.andreasgiemza.mangadownloader.http.CircuitBreakerTransport;
+import de.andreasgiemza.mangadownloader.http.CircuitBreakers;
+import de.andreasgiemza.mangadownloader.http.GovernedTransport;
+import de.andreasgiemza.mangadownloader.http.HostGovernor;
+import de.andreasgiemza.mangadownloader.http.HostLimits;
+import de.andreasgiemza.mangadownloader.http.HttpRequest;
+import de.andreasgiemza.mangadownloader.http.HttpResponse;
+import de.andreasgiemza.mangadownloader.http.HttpStatusException;
+import de.andreasgiemza.mangadownloader.http.HttpTransport;
+import de.andreasgiemza.mangadownloader.http.PageValidator;
+import de.andreasgiemza.mangadownloader.http.RetryBudget;
+import de.andreasgiemza.mangadownloader.http.RetryPolicy;
+import de.andreasgiemza.mangadownloader.http.UrlConnectionTransport;
+import de.andreasgiemza.mangadownloader.options.Options;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import javax.imageio.ImageIO;
 import javax.net.ssl.HostnameVerifier;
@@ -50,90 +73,204 @@ import org.jsoup.nodes.Document;
  */
 public final class JsoupHelper {
 
-    private final static int NUMBER_OF_TRIES = 5;
-    private final static int MAX_BODY_SIZE = 0; // Unlimited (limited only by RAM)
+    private final static int MAX_CONNECTIONS_PER_HOST = 8;
+    private final static String USER_AGENT = "Mozilla/5.0 (Windows NT 6.3; rv:36.0) Gecko/20100101 Firefox/36.0";
+    private final static String USER_AGENT_MOBILE = "Mozilla/5.0 (Linux; Android 4.1.1; Nexus 7 Build/JRO03D) AppleWebKit/535.19 (KHTML, like Gecko) Chrome/18.0.1025.166 Safari/535.19";
+    // With the default tries a dead host costs at most 43 s for a page and
+    // 44 s for an image, timeouts and delays included, less than the 45 s of
+    // the former linear timeouts
+    private final static RetryPolicy HTML_POLICY = new RetryPolicy(Options.INSTANCE.getHtmlTries(), 3000, 8000, 500, 2500);
+    private final static RetryPolicy IMAGE_POLICY = new RetryPolicy(Options.INSTANCE.getImageTries(), 4000, 10000, 1000, 4000);
+    // Retries may add at most 20% load, with a reserve of one retry per second
+    private final static RetryBudget RETRY_BUDGET = new RetryBudget(0.2, 1, 20);
+    private static volatile HttpTransport transport = new CircuitBreakerTransport(
+            new GovernedTransport(
+                    new UrlConnectionTransport(MAX_CONNECTIONS_PER_HOST), HostGovernor.INSTANCE),
+            CircuitBreakers.INSTANCE);
+    private final static ThreadLocal<List<PageValidator>> recordedValidators = new ThreadLocal<>();
 
-    private JsoupHelper() {
-    }
+    static {
+        HostGovernor.INSTANCE.setDefaultLimits(Options.INSTANCE.getDefaultHostLimits());
 
-    public static Document getHTMLPage(String url) throws Exception {
-        Exception ex = null;
-
-        for (int i = 0; i < NUMBER_OF_TRIES; i++) {
-            try {
-                return Jsoup.connect(url)
-                        .maxBodySize(MAX_BODY_SIZE)
-                        .timeout((i + 1) * 3000)
-                        .userAgent("Mozilla/5.0 (Windows NT 6.3; rv:36.0) Gecko/20100101 Firefox/36.0")
-                        .get();
-            } catch (Exception e) {
-                System.err.println("Try " + (i + 1) + " of " + NUMBER_OF_TRIES + ". Link: " + url + ". Error: " + e.getMessage());
-                ex = e;
-            }
+        for (Map.Entry<String, HostLimits> override : Options.INSTANCE.getHostLimitOverrides().entrySet()) {
+            HostGovernor.INSTANCE.setLimits(override.getKey(), override.getValue());
         }
+    }
+
+    private interface ResponseReader<T> {
 
-        throw ex;
+        public T read(HttpResponse response) throws Exception;
     }
 
-    public static Document getHTMLPageWithPost(String url, Map<String, String> post) throws Exception {
-        Exception ex = null;
-
-        for (int i = 0; i < NUMBER_OF_TRIES; i++) {
-            try {
-                return Jsoup.connect(url)
-                        .maxBodySize(MAX_BODY_SIZE)
-                        .timeout((i + 1) * 3000)
-                        .userAgent("Mozilla/5.0 (Windows NT 6.3; rv:36.0) Gecko/20100101 Firefox/36.0")
-                        .data(post)
-                        .post();
-            } catch (Exception e) {
-                System.err.println("Try " + (i + 1) + " of " + NUMBER_OF_TRIES + ". Link: " + url + ". Error: " + e.getMessage());
-                ex = e;
-            }
+    private final static ResponseReader<Document> DOCUMENT_READER = new ResponseReader<Document>() {
+
+        @Override
+        public Document read(HttpResponse response) throws Exception {
+            return Jsoup.parse(response.getBody(), response.getCharset(), response.getUrl());
+        }
+    };
+
+    private final static ResponseReader<byte[]> BYTES_READER = new ResponseReader<byte[]>() {
+
+        @Override
+        public byte[] read(HttpResponse response) throws Exception {
+            return ByteStreams.toByteArray(response.getBody());
+        }
+    };
+
+    private final static ResponseReader<Boolean> MODIFIED_READER = new ResponseReader<Boolean>() {
+
+        @Override
+        public Boolean read(HttpResponse response) throws Exception {
+            return response.getStatusCode() != HttpURLConnection.HTTP_NOT_MODIFIED;
         }
+    };
 
-        throw ex;
+    private JsoupHelper() {
+    }
+
+    public static void setTransport(HttpTransport transport) {
+        JsoupHelper.transport = transport;
+    }
+
+    public static Document getHTMLPage(String url) throws Exception {
+        return execute(new HttpRequest(url)
+                .userAgent(USER_AGENT), HTML_POLICY, DOCUMENT_READER);
+    }
+
+    public static Document getHTMLPageWithPost(String url, Map<String, String> post) throws Exception {
+        return execute(new HttpRequest(url)
+                .userAgent(USER_AGENT)
+                .data(post), HTML_POLICY, DOCUMENT_READER);
     }
 
     public static Document getHTMLPageMobile(String url) throws Exception {
-        Exception ex = null;
-
-        for (int i = 0; i < NUMBER_OF_TRIES; i++) {
-            try {
-                return Jsoup.connect(url)
-                        .maxBodySize(MAX_BODY_SIZE)
-                        .timeout((i + 1) * 3000)
-                        .userAgent("Mozilla/5.0 (Linux; Android 4.1.1; Nexus 7 Build/JRO03D) AppleWebKit/535.19 (KHTML, like Gecko) Chrome/18.0.1025.166 Safari/535.19")
-                        .get();
-            } catch (Exception e) {
-                System.err.println("Try " + (i + 1) + " of " + NUMBER_OF_TRIES + ". Link: " + url + ". Error: " + e.getMessage());
-                ex = e;
-            }
+        return execute(new HttpRequest(url)
+                .userAgent(USER_AGENT_MOBILE), HTML_POLICY, DOCUMENT_READER);
+    }
+
+    /**
+     * Records the validators of every page the current thread loads into the
+     * list, until recording is stopped with null.
+     */
+    public static void recordValidators(List<PageValidator> validators) {
+        if (validators == null) {
+            recordedValidators.remove();
+        } else {
+            recordedValidators.set(validators);
+        }
+    }
+
+    public static boolean isModified(PageValidator validator) throws Exception {
+        HttpRequest request = new HttpRequest(validator.getUrl())
+                .userAgent(USER_AGENT);
+
+        if (validator.getEtag() != null) {
+            request.header("If-None-Match", validator.getEtag());
+        }
+
+        if (validator.getLastModified() != null) {
+            request.header("If-Modified-Since", validator.getLastModified());
         }
 
-        throw ex;
+        return execute(request, HTML_POLICY, MODIFIED_READER);
     }
 
     public static byte[] getImage(String imageLink, String referrer) throws Exception {
-        Exception ex = null;
-
-        for (int i = 0; i < NUMBER_OF_TRIES; i++) {
-            try {
-                return Jsoup.connect(imageLink)
-                        .maxBodySize(MAX_BODY_SIZE)
-                        .timeout((i + 1) * 3000)
-                        .userAgent("Mozilla/5.0 (Windows NT 6.3; rv:36.0) Gecko/20100101 Firefox/36.0")
-                        .referrer(referrer)
-                        .ignoreContentType(true)
-                        .execute()
-                        .bodyAsBytes();
+        return execute(new HttpRequest(imageLink)
+                .userAgent(USER_AGENT)
+                .referrer(referrer), IMAGE_POLICY, BYTES_READER);
+    }
+
+    /**
+     * Streams the image into the sink, every try opens a new stream.
+     *
+     * @return the size of the image in bytes
+     */
+    public static long getImage(String imageLink, String referrer, final ByteSink sink) throws Exception {
+        return execute(new HttpRequest(imageLink)
+                .userAgent(USER_AGENT)
+                .referrer(referrer), IMAGE_POLICY, new ResponseReader<Long>() {
+
+                    @Override
+                    public Long read(HttpResponse response) throws Exception {
+                        try (OutputStream out = sink.openStream()) {
+                            return StreamHelper.copy(response.getBody(), out);
+                        }
+                    }
+                });
+    }
+
+    private static <T> T execute(HttpRequest request, RetryPolicy policy, ResponseReader<T> reader) throws Exception {
+        RETRY_BUDGET.deposit();
+
+        for (int i = 0;; i++) {
+            try (HttpResponse response = execute(request.timeout(policy.getTimeout(i)))) {
+                T result = reader.read(response);
+
+                // After the body, so a page which is retried is recorded once
+                recordValidator(request, response);
+
+                return result;
             } catch (Exception e) {
-                System.err.println("Try " + (i + 1) + " of " + NUMBER_OF_TRIES + ". Link: " + imageLink + ". Error: " + e.getMessage());
-                ex = e;
+                System.err.println("Try " + (i + 1) + " of " + policy.getTries() + ". Link: " + request.getUrl() + ". Error: " + e.getMessage());
+
+                if (i + 1 >= policy.getTries() || !policy.isRetryable(e)) {
+                    throw e;
+                }
+
+                if (!RETRY_BUDGET.tryWithdraw()) {
+                    System.err.println("Retry budget exhausted. Link: " + request.getUrl());
+                    throw e;
+                }
+
+                Thread.sleep(policy.getDelay(i, e));
             }
         }
+    }
 
-        throw ex;
+    private static HttpResponse execute(HttpRequest request) throws IOException {
+        HttpResponse response = transport.execute(request);
+
+        // Only conditional requests get a 304
+        if ((response.getStatusCode() < 200 || response.getStatusCode() >= 300)
+                && response.getStatusCode() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            response.close();
+            throw new HttpStatusException(response.getStatusCode(), response.getUrl(),
+                    parseRetryAfter(response.getHeader("Retry-After")));
+        }
+
+        return response;
+    }
+
+    private static void recordValidator(HttpRequest request, HttpResponse response) {
+        List<PageValidator> validators = recordedValidators.get();
+
+        // A POST can't be repeated as conditional GET
+        if (validators != null) {
+            validators.add(request.isPost()
+                    ? new PageValidator(request.getUrl(), null, null)
+                    : new PageValidator(request.getUrl(), response.getHeader("ETag"), response.getHeader("Last-Modified")));
+        }
+    }
+
+    // Retry-After is either delta-seconds or a HTTP-date
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException ex) {
+        }
+
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            return Math.max(0, format.parse(retryAfter.trim()).getTime() - System.currentTimeMillis());
+        } catch (ParseException ex) {
+            return -1;
+        }
     }
 
     public static byte[] getImageWithFragment(Image images) throws Exception {
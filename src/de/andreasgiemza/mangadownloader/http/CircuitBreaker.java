@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+/**
+ * Opens after failureThreshold failed requests in a row. While open every
+ * request fails right away. After the open time a single trial request is let
+ * through: if it succeeds the breaker closes again, otherwise it stays open for
+ * twice as long.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class CircuitBreaker {
+
+    private enum State {
+
+        CLOSED, OPEN, HALF_OPEN;
+    }
+
+    private final String host;
+    private final int failureThreshold;
+    private final long initialOpenTime;
+    private final long maxOpenTime;
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openTime;
+    private long openUntil;
+
+    public CircuitBreaker(String host, int failureThreshold, long initialOpenTime, long maxOpenTime) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.initialOpenTime = initialOpenTime;
+        this.maxOpenTime = maxOpenTime;
+        this.openTime = initialOpenTime;
+    }
+
+    public synchronized void beforeRequest() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            long retryIn = getRetryIn();
+
+            if (retryIn > 0) {
+                throw new CircuitOpenException(host, retryIn);
+            }
+
+            state = State.HALF_OPEN;
+        } else if (state == State.HALF_OPEN) {
+            // Only the trial request may pass
+            throw new CircuitOpenException(host, 0);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        openTime = initialOpenTime;
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            openTime = Math.min(maxOpenTime, openTime * 2);
+            open();
+        } else if (state == State.CLOSED && ++failures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * For requests which ended without telling anything about the host, e.g.
+     * because the download was cancelled.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    public synchronized boolean allowsRequests() {
+        return state == State.CLOSED || (state == State.OPEN && getRetryIn() == 0);
+    }
+
+    public synchronized long getRetryIn() {
+        return state == State.OPEN
+                ? Math.max(0, openUntil - System.currentTimeMillis())
+                : 0;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openTime;
+    }
+}
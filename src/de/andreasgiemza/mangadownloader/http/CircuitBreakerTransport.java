@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+/**
+ * Fails requests to hosts with an open circuit breaker before they are
+ * queued, and reports the outcome of all other requests to the breaker of
+ * their host. Server errors and throttling count as failures, other HTTP
+ * errors prove the host is up.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class CircuitBreakerTransport implements HttpTransport {
+
+    private final HttpTransport transport;
+    private final CircuitBreakers breakers;
+
+    public CircuitBreakerTransport(HttpTransport transport, CircuitBreakers breakers) {
+        this.transport = transport;
+        this.breakers = breakers;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        CircuitBreaker breaker = breakers.get(new URL(request.getUrl()).getHost());
+        breaker.beforeRequest();
+
+        HttpResponse response;
+
+        try {
+            response = transport.execute(request);
+        } catch (InterruptedIOException ex) {
+            if (ex instanceof SocketTimeoutException) {
+                breaker.onFailure();
+            } else {
+                breaker.onIgnored();
+            }
+            throw ex;
+        } catch (IOException ex) {
+            breaker.onFailure();
+            throw ex;
+        } catch (RuntimeException ex) {
+            breaker.onIgnored();
+            throw ex;
+        }
+
+        if (response.getStatusCode() >= 500 || response.getStatusCode() == 429) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+
+        return response;
+    }
+}
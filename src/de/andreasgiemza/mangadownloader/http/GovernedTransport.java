@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+
+/**
+ * Lets every request wait for the HostGovernor before it is handed to the
+ * underlying transport.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class GovernedTransport implements HttpTransport {
+
+    private final HttpTransport transport;
+    private final HostGovernor governor;
+
+    public GovernedTransport(HttpTransport transport, HostGovernor governor) {
+        this.transport = transport;
+        this.governor = governor;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        String host = new URL(request.getUrl()).getHost();
+        final Closeable permit;
+
+        try {
+            permit = governor.acquire(host);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + host);
+        }
+
+        final HttpResponse response;
+
+        try {
+            response = transport.execute(request);
+        } catch (IOException | RuntimeException ex) {
+            permit.close();
+            throw ex;
+        }
+
+        return new HttpResponse(response.getStatusCode(), response.getUrl(), response.getHeaders(), response.getBody(), new Closeable() {
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    response.close();
+                } finally {
+                    permit.close();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the requests to every host within its HostLimits. Hosts without
+ * limits of their own share the default limits, each with its own bucket.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public enum HostGovernor {
+
+    INSTANCE;
+
+    private final ConcurrentMap<String, HostLimits> limits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+    private volatile HostLimits defaultLimits = new HostLimits(10, 10, 8);
+
+    // Hosts which are already governed keep their permits and tokens
+    public void setDefaultLimits(HostLimits defaultLimits) {
+        this.defaultLimits = defaultLimits;
+
+        for (Map.Entry<String, Host> governedHost : hosts.entrySet()) {
+            governedHost.getValue().setLimits(getLimits(governedHost.getKey()));
+        }
+    }
+
+    public void setLimits(String host, HostLimits hostLimits) {
+        limits.put(host, hostLimits);
+
+        Host governedHost = hosts.get(host);
+        if (governedHost != null) {
+            governedHost.setLimits(hostLimits);
+        }
+    }
+
+    public HostLimits getLimits(String host) {
+        HostLimits hostLimits = limits.get(host);
+        return hostLimits != null ? hostLimits : defaultLimits;
+    }
+
+    /**
+     * Blocks until a request to the host is allowed. The returned permit has
+     * to be closed when the response is done.
+     */
+    public Closeable acquire(String host) throws InterruptedException {
+        final Host governedHost = getHost(host);
+
+        governedHost.connections.acquire();
+
+        try {
+            governedHost.bucket.take();
+        } catch (InterruptedException ex) {
+            governedHost.connections.release();
+            throw ex;
+        }
+
+        return new Closeable() {
+
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            @Override
+            public void close() {
+                if (released.compareAndSet(false, true)) {
+                    governedHost.connections.release();
+                }
+            }
+        };
+    }
+
+    private Host getHost(String host) {
+        Host governedHost = hosts.get(host);
+
+        if (governedHost == null) {
+            hosts.putIfAbsent(host, new Host(getLimits(host)));
+            governedHost = hosts.get(host);
+        }
+
+        return governedHost;
+    }
+
+    private static class Host {
+
+        private final Connections connections;
+        private final TokenBucket bucket;
+        private int maxConnections;
+
+        Host(HostLimits hostLimits) {
+            maxConnections = hostLimits.getMaxConnections();
+            connections = new Connections(maxConnections);
+            bucket = new TokenBucket(hostLimits.getRequestsPerSecond(), hostLimits.getBurst());
+        }
+
+        // Open connections above a lowered maximum are closed as usual
+        synchronized void setLimits(HostLimits hostLimits) {
+            int difference = hostLimits.getMaxConnections() - maxConnections;
+
+            if (difference > 0) {
+                connections.release(difference);
+            } else if (difference < 0) {
+                connections.reducePermits(-difference);
+            }
+
+            maxConnections = hostLimits.getMaxConnections();
+            bucket.setRate(hostLimits.getRequestsPerSecond(), hostLimits.getBurst());
+        }
+    }
+
+    private static class Connections extends Semaphore {
+
+        Connections(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
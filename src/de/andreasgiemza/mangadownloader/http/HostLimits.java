@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+/**
+ * How hard a host may be hit: a token bucket of requestsPerSecond that can
+ * hold up to burst requests, and at most maxConnections requests at a time.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class HostLimits {
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int maxConnections;
+
+    public HostLimits(double requestsPerSecond, int burst, int maxConnections) {
+        if (requestsPerSecond <= 0 || burst < 1 || maxConnections < 1) {
+            throw new IllegalArgumentException("Invalid host limits: " + requestsPerSecond + "/" + burst + "/" + maxConnections);
+        }
+
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxConnections = maxConnections;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    @Override
+    public String toString() {
+        return requestsPerSecond + "/" + burst + "/" + maxConnections;
+    }
+}
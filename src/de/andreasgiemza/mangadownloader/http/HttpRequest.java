@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class HttpRequest {
+
+    private final String url;
+    private String userAgent;
+    private String referrer;
+    private Map<String, String> data = Collections.emptyMap();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private int timeout = 3000;
+
+    public HttpRequest(String url) {
+        this.url = url;
+    }
+
+    public HttpRequest userAgent(String userAgent) {
+        this.userAgent = userAgent;
+        return this;
+    }
+
+    public HttpRequest referrer(String referrer) {
+        this.referrer = referrer;
+        return this;
+    }
+
+    public HttpRequest data(Map<String, String> data) {
+        this.data = new LinkedHashMap<>(data);
+        return this;
+    }
+
+    public HttpRequest header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public HttpRequest timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public String getReferrer() {
+        return referrer;
+    }
+
+    public Map<String, String> getData() {
+        return data;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public boolean isPost() {
+        return !data.isEmpty();
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public String toString() {
+        return (isPost() ? "POST " : "GET ") + url;
+    }
+}
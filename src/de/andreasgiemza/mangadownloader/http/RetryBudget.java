@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the retries of all requests together. Every request adds
+ * retryRatio to the budget and every retry takes one from it, so retries can
+ * at most add retryRatio load on top of the requests. A small reserve refills
+ * over time, so there are always some retries when only few requests are
+ * made.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class RetryBudget {
+
+    private final double retryRatio;
+    private final double reservePerNano;
+    private final double maxBalance;
+    private double balance;
+    private long lastRefill = System.nanoTime();
+
+    public RetryBudget(double retryRatio, double reservePerSecond, int maxBalance) {
+        this.retryRatio = retryRatio;
+        this.reservePerNano = reservePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxBalance = maxBalance;
+        this.balance = maxBalance;
+    }
+
+    public synchronized void deposit() {
+        refill();
+        balance = Math.min(maxBalance, balance + retryRatio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        refill();
+
+        if (balance < 1) {
+            return false;
+        }
+
+        balance -= 1;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+
+        balance = Math.min(maxBalance, balance + (now - lastRefill) * reservePerNano);
+        lastRefill = now;
+    }
+}
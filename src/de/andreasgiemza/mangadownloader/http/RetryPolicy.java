@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and how fast a failed request is tried again. The delays grow
+ * exponentially with full jitter, a Retry-After of the server is always
+ * waited for. A request whose Retry-After is longer than the maximum delay
+ * isn't tried again.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class RetryPolicy {
+
+    private final int tries;
+    private final int initialTimeout;
+    private final int maxTimeout;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    public RetryPolicy(int tries, int initialTimeout, int maxTimeout, long baseDelay, long maxDelay) {
+        this.tries = tries;
+        this.initialTimeout = initialTimeout;
+        this.maxTimeout = maxTimeout;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    public int getTries() {
+        return tries;
+    }
+
+    public int getTimeout(int attempt) {
+        return (int) Math.min(maxTimeout, (long) initialTimeout << Math.min(attempt, 16));
+    }
+
+    public boolean isRetryable(Exception ex) {
+        if (ex instanceof CircuitOpenException) {
+            return false;
+        }
+
+        if (ex instanceof InterruptedIOException && !(ex instanceof SocketTimeoutException)) {
+            return false;
+        }
+
+        if (ex instanceof HttpStatusException) {
+            HttpStatusException statusException = (HttpStatusException) ex;
+            int statusCode = statusException.getStatusCode();
+
+            // Retrying earlier than the server asked for only adds load
+            if (statusException.getRetryAfter() > maxDelay) {
+                return false;
+            }
+
+            return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+        }
+
+        return true;
+    }
+
+    public long getDelay(int attempt, Exception ex) {
+        long backoff = Math.min(maxDelay, baseDelay << Math.min(attempt, 16));
+        long delay = ThreadLocalRandom.current().nextLong(backoff + 1);
+
+        if (ex instanceof HttpStatusException) {
+            long retryAfter = ((HttpStatusException) ex).getRetryAfter();
+
+            if (retryAfter > delay) {
+                delay = retryAfter;
+            }
+        }
+
+        return delay;
+    }
+}
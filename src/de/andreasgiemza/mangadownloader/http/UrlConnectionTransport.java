@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HttpTransport on top of the keep-alive cache of HttpURLConnection. A
+ * connection only goes back to the cache if its body has been read to the end,
+ * so every response drains what is left when it is closed. The number of open
+ * connections per host is limited, which also bounds the size of the cache.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    private final static int MAX_REDIRECTS = 10;
+    private final static int MAX_DRAIN_BYTES = 256 * 1024;
+    private final int maxConnectionsPerHost;
+    private final ConcurrentMap<String, Semaphore> connections = new ConcurrentHashMap<>();
+
+    public UrlConnectionTransport(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+
+        // Read once by the JDK when the first connection is opened
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(maxConnectionsPerHost));
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        URL url = new URL(request.getUrl());
+        Semaphore hostConnections = getConnections(url.getHost());
+
+        try {
+            hostConnections.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + url.getHost());
+        }
+
+        try {
+            boolean post = request.isPost();
+
+            for (int redirects = 0;; redirects++) {
+                HttpURLConnection connection = open(url, request, post);
+                int statusCode = connection.getResponseCode();
+                String location = connection.getHeaderField("Location");
+
+                if (statusCode >= 300 && statusCode < 400 && location != null && redirects < MAX_REDIRECTS) {
+                    drain(statusCode, connection);
+
+                    // Like a browser only 307 and 308 keep the POST
+                    if (statusCode == HttpURLConnection.HTTP_MOVED_PERM
+                            || statusCode == HttpURLConnection.HTTP_MOVED_TEMP
+                            || statusCode == HttpURLConnection.HTTP_SEE_OTHER) {
+                        post = false;
+                    }
+
+                    url = new URL(url, location);
+                    continue;
+                }
+
+                return createResponse(statusCode, url, connection, hostConnections);
+            }
+        } catch (IOException | RuntimeException ex) {
+            hostConnections.release();
+            throw ex;
+        }
+    }
+
+    private Semaphore getConnections(String host) {
+        Semaphore hostConnections = connections.get(host);
+
+        if (hostConnections == null) {
+            connections.putIfAbsent(host, new Semaphore(maxConnectionsPerHost, true));
+            hostConnections = connections.get(host);
+        }
+
+        return hostConnections;
+    }
+
+    private HttpURLConnection open(URL url, HttpRequest request, boolean post) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(request.getTimeout());
+        connection.setReadTimeout(request.getTimeout());
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+
+        if (request.getUserAgent() != null) {
+            connection.setRequestProperty("User-Agent", request.getUserAgent());
+        }
+
+        if (request.getReferrer() != null) {
+            connection.setRequestProperty("Referer", request.getReferrer());
+        }
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        if (post) {
+            byte[] body = encode(request.getData());
+
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+
+        return connection;
+    }
+
+    private static byte[] encode(Map<String, String> data) throws IOException {
+        StringBuilder body = new StringBuilder();
+
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+
+            body.append(URLEncoder.encode(entry.getKey(), "UTF-8"))
+                    .append('=')
+                    .append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+        }
+
+        return body.toString().getBytes("UTF-8");
+    }
+
+    private static InputStream getRawBody(int statusCode, HttpURLConnection connection) throws IOException {
+        InputStream body = statusCode >= 400
+                ? connection.getErrorStream()
+                : connection.getInputStream();
+
+        return body != null ? body : new ByteArrayInputStream(new byte[0]);
+    }
+
+    private static void drain(int statusCode, HttpURLConnection connection) throws IOException {
+        drain(getRawBody(statusCode, connection));
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        try (InputStream in = body) {
+            byte[] buffer = new byte[8192];
+            int drained = 0;
+            int read;
+
+            while (drained < MAX_DRAIN_BYTES && (read = in.read(buffer)) != -1) {
+                drained += read;
+            }
+        }
+    }
+
+    private static HttpResponse createResponse(int statusCode, URL url, HttpURLConnection connection, final Semaphore hostConnections) throws IOException {
+        final InputStream rawBody = getRawBody(statusCode, connection);
+        InputStream body = rawBody;
+
+        // A 304 has no body, even if it names the encoding
+        if (statusCode != HttpURLConnection.HTTP_NOT_MODIFIED && "gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            try {
+                body = new GZIPInputStream(rawBody);
+            } catch (IOException ex) {
+                drain(rawBody);
+                throw ex;
+            }
+        }
+
+        return new HttpResponse(statusCode, url.toString(), connection.getHeaderFields(), body, new Closeable() {
+
+            private final AtomicBoolean closed = new AtomicBoolean();
+
+            @Override
+            public void close() throws IOException {
+                if (closed.compareAndSet(false, true)) {
+                    try {
+                        drain(rawBody);
+                    } finally {
+                        hostConnections.release();
+                    }
+                }
+            }
+        });
+    }
+}
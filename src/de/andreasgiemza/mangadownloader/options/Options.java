@@ -23,13 +23,18 @@
  */
 package de.andreasgiemza.mangadownloader.options;
 
+import de.andreasgiemza.mangadownloader.http.HostLimits;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  *
@@ -44,7 +49,20 @@ public enum Options {
     private final Path optionsFile = optionsDir.resolve("MangaDownloader.properties");
     private final String mangasDir = "mangasDir";
     private final String selectedSource = "selectedSource";
+    private final String downloadThreads = "downloadThreads";
+    private final String imageThreads = "imageThreads";
+    private final String imageMemoryBudget = "imageMemoryBudget";
+    private final String hostLimits = "hostLimits";
+    private final String htmlTries = "htmlTries";
+    private final String imageTries = "imageTries";
+    private final String storedExtensions = "storedExtensions";
+    private final String mapMangaLists = "mapMangaLists";
+    private final String chapterListTtl = "chapterListTtl";
+    private final String imageLinkTtl = "imageLinkTtl";
     private final Path mangaListDir = optionsDir.resolve("sources");
+    private final Path downloadJournal = optionsDir.resolve("downloads.journal");
+    private final Path chapterListDir = optionsDir.resolve("chapters");
+    private final Path imageLinkDir = optionsDir.resolve("imageLinks");
 
     Options() {
         try {
@@ -74,6 +92,103 @@ public enum Options {
         return properties.getProperty(selectedSource, "");
     }
 
+    public int getDownloadThreads() {
+        return getInt(downloadThreads, 3);
+    }
+
+    public int getImageThreads() {
+        return getInt(imageThreads, 4);
+    }
+
+    public long getImageMemoryBudget() {
+        return getInt(imageMemoryBudget, 32) * 1024L * 1024L;
+    }
+
+    public int getHtmlTries() {
+        return getInt(htmlTries, 5);
+    }
+
+    public int getImageTries() {
+        return getInt(imageTries, 4);
+    }
+
+    // Images with these extensions are stored in the archive without deflate
+    public Set<String> getStoredExtensions() {
+        Set<String> extensions = new HashSet<>();
+
+        for (String extension : properties.getProperty(storedExtensions, "jpg,jpeg,png,gif,webp").split(",")) {
+            if (!extension.trim().isEmpty()) {
+                extensions.add(extension.trim().toLowerCase());
+            }
+        }
+
+        return extensions;
+    }
+
+    // Cached chapter lists older than this are revalidated, in minutes
+    public long getChapterListTtl() {
+        return getInt(chapterListTtl, 30) * 60L * 1000L;
+    }
+
+    // Resolved image links of unfinished chapters are used this long, in hours
+    public long getImageLinkTtl() {
+        return getInt(imageLinkTtl, 24) * 60L * 60L * 1000L;
+    }
+
+    // Mapped files can't be replaced on Windows, so lists are read into memory there
+    public boolean isMapMangaLists() {
+        boolean windows = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+        return Boolean.parseBoolean(properties.getProperty(mapMangaLists, String.valueOf(!windows)));
+    }
+
+    // Format: requestsPerSecond/burst/maxConnections
+    public HostLimits getDefaultHostLimits() {
+        return readHostLimits(hostLimits, new HostLimits(10, 10, 8));
+    }
+
+    public HostLimits getHostLimits(String host, HostLimits defaultLimits) {
+        return readHostLimits(hostLimits + "." + host, defaultLimits);
+    }
+
+    public Map<String, HostLimits> getHostLimitOverrides() {
+        Map<String, HostLimits> overrides = new HashMap<>();
+        String prefix = hostLimits + ".";
+
+        for (String key : properties.stringPropertyNames()) {
+            HostLimits limits = readHostLimits(key, null);
+
+            if (key.startsWith(prefix) && limits != null) {
+                overrides.put(key.substring(prefix.length()), limits);
+            }
+        }
+
+        return overrides;
+    }
+
+    private HostLimits readHostLimits(String key, HostLimits defaultLimits) {
+        String value = properties.getProperty(key);
+
+        if (value == null) {
+            return defaultLimits;
+        }
+
+        try {
+            String[] limits = value.split("/");
+            return new HostLimits(Double.parseDouble(limits[0]), Integer.parseInt(limits[1]), Integer.parseInt(limits[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            return defaultLimits;
+        }
+    }
+
+    private int getInt(String key, int defaultValue) {
+        try {
+            int value = Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)));
+            return value > 0 ? value : defaultValue;
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
     public void saveOptions() {
         try {
             properties.store(new FileOutputStream(optionsFile.toFile()), null);
@@ -94,4 +209,16 @@ public enum Options {
     public Path getMangaListDir() {
         return mangaListDir;
     }
+
+    public Path getDownloadJournal() {
+        return downloadJournal;
+    }
+
+    public Path getChapterListDir() {
+        return chapterListDir;
+    }
+
+    public Path getImageLinkDir() {
+        return imageLinkDir;
+    }
 }
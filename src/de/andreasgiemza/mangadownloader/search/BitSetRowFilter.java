@@ -1,7 +1,7 @@
 /*
  * The MIT License
  *
- * Copyright 2014 Andreas Giemza <andreas@giemza.net>.
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -21,30 +21,27 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
  * THE SOFTWARE.
  */
-package de.andreasgiemza.mangadownloader.helpers;
+package de.andreasgiemza.mangadownloader.search;
 
-import java.util.regex.Pattern;
+import java.util.BitSet;
+import javax.swing.RowFilter;
 
 /**
+ * Row filter with precomputed matches, the bit of every included model row
+ * is set.
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public final class RegexHelper {
+public class BitSetRowFilter<M> extends RowFilter<M, Integer> {
 
-    private RegexHelper() {
-    }
-
-    public static String build(String string) {
-        final String[] searchTextAray = string.split(" ");
+    private final BitSet rows;
 
-        String regexExpression = "(?i)";
-
-        for (String word : searchTextAray) {
-            if (word.length() > 0) {
-                regexExpression += "(?=.*" + Pattern.quote(word) + ")";
-            }
-        }
+    public BitSetRowFilter(BitSet rows) {
+        this.rows = rows;
+    }
 
-        return regexExpression;
+    @Override
+    public boolean include(Entry<? extends M, ? extends Integer> entry) {
+        return rows.get(entry.getIdentifier());
     }
 }
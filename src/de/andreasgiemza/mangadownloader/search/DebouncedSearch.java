@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.search;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+/**
+ * Searches the titles of a table on a background thread, once the search
+ * text hasn't changed for a moment. A query which extends the last one only
+ * has to check the rows the last one matched. Results of outdated searches
+ * are dropped, the listener gets the latest one on the event dispatch thread.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class DebouncedSearch {
+
+    public interface Listener {
+
+        // The rows are null if the search text is empty
+        public void searchFinished(BitSet rows);
+    }
+
+    private final static long DELAY = 150;
+    private final static ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Search-%d").setDaemon(true).build());
+    private final Listener listener;
+    private List<String> titles = Collections.emptyList();
+    // The titles the index and the last result belong to
+    private List<String> indexedTitles = titles;
+    private TitleIndex index;
+    private String query = "";
+    private String lastQuery;
+    private BitSet lastRows;
+    private long generation = 0;
+    private ScheduledFuture<?> pending;
+
+    public DebouncedSearch(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * The titles must not change afterwards. The search text is searched
+     * again right away, since the rows of the last result may be outdated.
+     * Only the search thread compares the titles, so lazy titles aren't
+     * decoded on the calling thread.
+     */
+    public synchronized void setTitles(List<String> titles) {
+        if (titles == this.titles) {
+            return;
+        }
+
+        this.titles = titles;
+
+        schedule(0);
+    }
+
+    public synchronized void search(String query) {
+        this.query = query;
+
+        schedule(DELAY);
+    }
+
+    private void schedule(long delay) {
+        final long searchGeneration = ++generation;
+
+        if (pending != null) {
+            pending.cancel(false);
+        }
+
+        pending = executor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                search(searchGeneration);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void search(long searchGeneration) {
+        List<String> searchTitles;
+        List<String> previousTitles;
+        TitleIndex searchIndex;
+        String searchQuery;
+        BitSet candidates = null;
+
+        synchronized (this) {
+            if (searchGeneration != generation) {
+                return;
+            }
+
+            searchTitles = titles;
+            previousTitles = indexedTitles;
+            searchIndex = index;
+            searchQuery = query;
+
+            if (lastRows != null && searchQuery.startsWith(lastQuery)) {
+                candidates = lastRows;
+            }
+        }
+
+        // Equal titles keep the index and the last result
+        if (searchTitles != previousTitles && !searchTitles.equals(previousTitles)) {
+            searchIndex = null;
+            candidates = null;
+        }
+
+        BitSet rows = null;
+
+        if (!searchQuery.trim().isEmpty()) {
+            if (searchIndex == null) {
+                searchIndex = new TitleIndex(searchTitles);
+            }
+
+            rows = searchIndex.search(searchQuery, candidates);
+        }
+
+        synchronized (this) {
+            if (searchTitles != titles) {
+                return;
+            }
+
+            indexedTitles = searchTitles;
+            index = searchIndex;
+            lastQuery = searchQuery;
+            lastRows = rows;
+        }
+
+        publish(searchGeneration, rows);
+    }
+
+    private void publish(final long searchGeneration, final BitSet rows) {
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                synchronized (DebouncedSearch.this) {
+                    if (searchGeneration != generation) {
+                        return;
+                    }
+                }
+
+                listener.searchFinished(rows);
+            }
+        });
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted trigram index over a list of titles. A query matches every title
+ * which contains all of its words, ignoring the case. The posting lists of
+ * the trigrams of the words are intersected first, so only the remaining
+ * candidates have to be compared with the words. Words shorter than a trigram
+ * only take part in this comparison.
+ *
+ * A query which extends an earlier one can be limited to the rows the earlier
+ * one matched.
+ *
+ * The index can be written to a stream and read again without rebuilding the
+ * posting lists.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class TitleIndex {
+
+    private final static int GRAM_LENGTH = 3;
+    private final String[] titles;
+    private final Map<Long, int[]> postings;
+
+    public TitleIndex(List<String> titles) {
+        this.titles = new String[titles.size()];
+
+        Map<Long, Postings> builders = new HashMap<>();
+        int row = 0;
+
+        for (String title : titles) {
+            String lowerCaseTitle = title != null ? title.toLowerCase(Locale.ROOT) : "";
+            this.titles[row] = lowerCaseTitle;
+
+            for (int i = 0; i + GRAM_LENGTH <= lowerCaseTitle.length(); i++) {
+                Long trigram = trigram(lowerCaseTitle, i);
+                Postings rows = builders.get(trigram);
+
+                if (rows == null) {
+                    rows = new Postings();
+                    builders.put(trigram, rows);
+                }
+
+                rows.add(row);
+            }
+
+            row++;
+        }
+
+        postings = new HashMap<>(builders.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, Postings> builder : builders.entrySet()) {
+            postings.put(builder.getKey(), builder.getValue().toArray());
+        }
+    }
+
+    private TitleIndex(String[] titles, Map<Long, int[]> postings) {
+        this.titles = titles;
+        this.postings = postings;
+    }
+
+    /*
+     * Stream format:
+     *
+     * varint  number of titles, followed by the lower case titles as strings
+     * varint  number of trigrams, followed by
+     *         long    trigram
+     *         varint  number of rows, followed by the rows as varint
+     *                 differences to the previous row
+     *
+     * Strings are a varint byte length followed by the UTF-8 bytes.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        writeVarInt(out, titles.length);
+        for (String title : titles) {
+            byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        writeVarInt(out, postings.size());
+        for (Map.Entry<Long, int[]> posting : postings.entrySet()) {
+            out.writeLong(posting.getKey());
+            writeVarInt(out, posting.getValue().length);
+
+            int previousRow = 0;
+            for (int row : posting.getValue()) {
+                writeVarInt(out, row - previousRow);
+                previousRow = row;
+            }
+        }
+    }
+
+    public static TitleIndex read(ByteBuffer buffer) throws IOException {
+        try {
+            String[] titles = new String[readLength(buffer)];
+            for (int i = 0; i < titles.length; i++) {
+                byte[] bytes = new byte[readLength(buffer)];
+                buffer.get(bytes);
+                titles[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int trigrams = readLength(buffer);
+            Map<Long, int[]> postings = new HashMap<>(trigrams * 4 / 3 + 1);
+            for (int i = 0; i < trigrams; i++) {
+                Long trigram = buffer.getLong();
+                int[] rows = new int[readLength(buffer)];
+
+                int row = 0;
+                for (int j = 0; j < rows.length; j++) {
+                    row += readVarInt(buffer);
+
+                    if (row < 0 || row >= titles.length) {
+                        throw new IOException("Malformed title index");
+                    }
+
+                    rows[j] = row;
+                }
+
+                postings.put(trigram, rows);
+            }
+
+            return new TitleIndex(titles, postings);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Malformed title index", ex);
+        }
+    }
+
+    public int size() {
+        return titles.length;
+    }
+
+    /**
+     * @return the rows of all titles matching the query
+     */
+    public BitSet search(String query) {
+        return search(query, null);
+    }
+
+    /**
+     * @param candidates the rows to check or null, for all rows
+     * @return the rows of the titles matching the query
+     */
+    public BitSet search(String query, BitSet candidates) {
+        List<String> words = getWords(query);
+        List<int[]> rowLists = new ArrayList<>();
+        BitSet result = new BitSet(titles.length);
+
+        if (candidates != null) {
+            for (int row = candidates.nextSetBit(0); row >= 0 && row < titles.length; row = candidates.nextSetBit(row + 1)) {
+                if (matches(row, words)) {
+                    result.set(row);
+                }
+            }
+
+            return result;
+        }
+
+        for (String word : words) {
+            for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+                int[] rows = postings.get(trigram(word, i));
+
+                if (rows == null) {
+                    return result;
+                }
+
+                rowLists.add(rows);
+            }
+        }
+
+        if (rowLists.isEmpty()) {
+            for (int row = 0; row < titles.length; row++) {
+                if (matches(row, words)) {
+                    result.set(row);
+                }
+            }
+
+            return result;
+        }
+
+        // Starting with the shortest list keeps the intersections small
+        Collections.sort(rowLists, new Comparator<int[]>() {
+
+            @Override
+            public int compare(int[] rows1, int[] rows2) {
+                return Integer.compare(rows1.length, rows2.length);
+            }
+        });
+
+        int[] rows = rowLists.get(0);
+        for (int i = 1; i < rowLists.size() && rows.length > 0; i++) {
+            rows = intersect(rows, rowLists.get(i));
+        }
+
+        for (int row : rows) {
+            if (matches(row, words)) {
+                result.set(row);
+            }
+        }
+
+        return result;
+    }
+
+    private boolean matches(int row, List<String> words) {
+        for (String word : words) {
+            if (!titles[row].contains(word)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List<String> getWords(String query) {
+        List<String> words = new ArrayList<>();
+
+        for (String word : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+
+        return words;
+    }
+
+    private static Long trigram(String string, int index) {
+        return ((long) string.charAt(index) << 32) | ((long) string.charAt(index + 1) << 16) | string.charAt(index + 2);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    // Every element takes at least one byte, so larger lengths are malformed
+    private static int readLength(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Malformed title index");
+        }
+
+        return length;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed title index");
+    }
+
+    private static int[] intersect(int[] rows1, int[] rows2) {
+        int[] result = new int[Math.min(rows1.length, rows2.length)];
+        int size = 0;
+
+        for (int i = 0, j = 0; i < rows1.length && j < rows2.length;) {
+            if (rows1[i] < rows2[j]) {
+                i++;
+            } else if (rows1[i] > rows2[j]) {
+                j++;
+            } else {
+                result[size++] = rows1[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, size);
+    }
+
+    // Rows are added in ascending order, so a repeated trigram is the last row
+    private static class Postings {
+
+        private int[] rows = new int[4];
+        private int size = 0;
+
+        void add(int row) {
+            if (size > 0 && rows[size - 1] == row) {
+                return;
+            }
+
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+
+            rows[size++] = row;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.sites;
+
+import de.andreasgiemza.mangadownloader.data.Chapter;
+import de.andreasgiemza.mangadownloader.data.Image;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public class ImageLinkCollector implements ImageLinkListener {
+
+    private Image[] images = new Image[0];
+
+    /**
+     * @return all image links the site hands out for the chapter
+     */
+    public static List<Image> collect(StreamingSite site, Chapter chapter) throws Exception {
+        ImageLinkCollector collector = new ImageLinkCollector();
+        site.getChapterImageLinks(chapter, collector);
+
+        return collector.getImages();
+    }
+
+    @Override
+    public synchronized void imageCountResolved(int count) {
+        images = new Image[count];
+    }
+
+    @Override
+    public synchronized void imageLinkResolved(int index, Image image) {
+        images[index] = image;
+    }
+
+    public synchronized List<Image> getImages() {
+        return new ArrayList<>(Arrays.asList(images));
+    }
+}
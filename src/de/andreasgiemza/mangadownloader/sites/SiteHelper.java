@@ -24,66 +24,134 @@
 package de.andreasgiemza.mangadownloader.sites;
 
 import com.google.common.reflect.ClassPath;
+import de.andreasgiemza.mangadownloader.http.HostGovernor;
+import de.andreasgiemza.mangadownloader.options.Options;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
+ * The site implementations are listed in a registry in the ServiceLoader
+ * format, which the build generates. A site is only instantiated when it is
+ * first requested and the instance is shared afterwards.
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
 public final class SiteHelper {
 
     private final static String implementationsPackage = "de.andreasgiemza.mangadownloader.sites.implementations";
+    private final static String registry = "META-INF/services/" + Site.class.getName();
+    // Class names by simple class name, which is the id of the site
+    private final static Map<String, String> classNames = loadRegistry();
+    private final static Map<String, Site> instances = new HashMap<>();
+    private static List<Site> sites;
 
     private SiteHelper() {
     }
 
-    public static List<Site> getSites() {
-        List<Site> sites = new LinkedList<>();
+    public static synchronized List<Site> getSites() {
+        if (sites == null) {
+            sites = new ArrayList<>();
 
-        try {
-            final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            for (String source : classNames.keySet()) {
+                Site site = getInstance(source);
 
-            for (final ClassPath.ClassInfo info : ClassPath.from(loader).getTopLevelClasses()) {
-                if (info.getName().startsWith(implementationsPackage)) {
-                    sites.add((Site) info.load().newInstance());
+                if (site != null) {
+                    sites.add(site);
                 }
             }
-        } catch (InstantiationException | IllegalAccessException | IOException ex) {
+
+            Collections.sort(sites, new Comparator<Site>() {
+                @Override
+                public int compare(Site site1, Site site2) {
+                    return site1.getName().compareTo(site2.getName());
+                }
+            });
         }
 
-        Collections.sort(sites, new Comparator<Site>() {
-            @Override
-            public int compare(Site site1, Site site2) {
-                return site1.getName().compareTo(site2.getName());
-            }
-        });
+        return new ArrayList<>(sites);
+    }
+
+    public static synchronized Site getInstance(String source) {
+        Site site = instances.get(source);
+
+        if (site != null) {
+            return site;
+        }
+
+        String className = classNames.get(source);
+
+        if (className == null) {
+            return null;
+        }
+
+        try {
+            site = register((Site) Class.forName(className).newInstance());
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException ex) {
+            return null;
+        }
+
+        instances.put(source, site);
 
-        return sites;
+        return site;
     }
 
-    public static Site getInstance(String source) {
+    private static Map<String, String> loadRegistry() {
+        Map<String, String> registeredClassNames = new LinkedHashMap<>();
         final ClassLoader loader = Thread.currentThread().getContextClassLoader();
 
         try {
-            for (final ClassPath.ClassInfo info : ClassPath.from(loader).getTopLevelClasses()) {
-                if (info.getName().startsWith(implementationsPackage)) {
-                    final Class<?> clazz = info.load();
-
-                    if (clazz.getSimpleName().equals(source)) {
-                        try {
-                            return (Site) clazz.newInstance();
-                        } catch (InstantiationException | IllegalAccessException ex) {
+            Enumeration<URL> registries = loader.getResources(registry);
+
+            while (registries.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        registries.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+
+                    while ((line = reader.readLine()) != null) {
+                        int comment = line.indexOf('#');
+                        String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+
+                        if (!className.isEmpty()) {
+                            registeredClassNames.put(className.substring(className.lastIndexOf('.') + 1), className);
                         }
                     }
                 }
             }
+
+            // Builds which skipped the generation of the registry
+            if (registeredClassNames.isEmpty()) {
+                for (final ClassPath.ClassInfo info : ClassPath.from(loader).getTopLevelClassesRecursive(implementationsPackage)) {
+                    registeredClassNames.put(info.getSimpleName(), info.getName());
+                }
+            }
         } catch (IOException ex) {
         }
 
-        return null;
+        return registeredClassNames;
+    }
+
+    private static Site register(Site site) {
+        if (site instanceof RateLimitedSite) {
+            try {
+                String host = new URL(site.getUrl()).getHost();
+                HostGovernor.INSTANCE.setLimits(host,
+                        Options.INSTANCE.getHostLimits(host, ((RateLimitedSite) site).getHostLimits()));
+            } catch (MalformedURLException ex) {
+            }
+        }
+
+        return site;
     }
 }
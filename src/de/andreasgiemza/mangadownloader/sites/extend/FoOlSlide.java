@@ -27,7 +27,10 @@ import de.andreasgiemza.mangadownloader.data.Chapter;
 import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
-import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkCollector;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import de.andreasgiemza.mangadownloader.sites.StreamingSite;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -41,7 +44,7 @@ import org.jsoup.select.Elements;
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public class FoOlSlide implements Site {
+public class FoOlSlide implements StreamingSite {
 
     private final String name;
     private final String url;
@@ -51,6 +54,7 @@ public class FoOlSlide implements Site {
     private final String baseUrl;
     private final String listUrl;
     private final Map<String, String> post = new HashMap<>();
+    private final int listConcurrency = 4;
 
     public FoOlSlide(String name, String url, List<String> language, Boolean watermarks, String baseUrl, String listUrl) {
         this.name = name;
@@ -67,8 +71,6 @@ public class FoOlSlide implements Site {
 
     @Override
     public List<Manga> getMangaList() throws Exception {
-        List<Manga> mangas = new LinkedList<>();
-
         Document doc = JsoupHelper.getHTMLPage(baseUrl + listUrl);
 
         int pages = 1;
@@ -83,18 +85,27 @@ public class FoOlSlide implements Site {
             }
         }
 
-        for (int i = 1; i <= pages; i++) {
-            if (i != 1) {
-                doc = JsoupHelper.getHTMLPage(baseUrl + listUrl + i + "/");
+        List<Manga> mangas = PageCrawler.crawl(this, doc, pages, listConcurrency, new PageCrawler.PageParser() {
+
+            @Override
+            public String getPageUrl(int page) {
+                return baseUrl + listUrl + page + "/";
             }
 
-            Elements rows = doc.select("div[class=group]");
+            @Override
+            public List<Manga> getMangas(Document doc) {
+                List<Manga> mangas = new LinkedList<>();
 
-            for (Element row : rows) {
-                Element link = row.select("div[class^=title]").first().select("a").first();
-                mangas.add(new Manga(link.attr("abs:href"), link.text()));
+                Elements rows = doc.select("div[class=group]");
+
+                for (Element row : rows) {
+                    Element link = row.select("div[class^=title]").first().select("a").first();
+                    mangas.add(new Manga(link.attr("abs:href"), link.text()));
+                }
+
+                return mangas;
             }
-        }
+        });
 
         return new LinkedList<>(new HashSet<>(mangas));
     }
@@ -123,27 +134,41 @@ public class FoOlSlide implements Site {
 
     @Override
     public List<Image> getChapterImageLinks(Chapter chapter) throws Exception {
-        List<Image> images = new LinkedList<>();
+        return ImageLinkCollector.collect(this, chapter);
+    }
 
+    @Override
+    public void getChapterImageLinks(Chapter chapter, ImageLinkListener listener) throws Exception {
         String referrer = chapter.getLink();
         Document doc = JsoupHelper.getHTMLPageWithPost(referrer, post);
 
-        int pages = Integer.parseInt(doc.select("div[class=tbtitle dropdown_parent dropdown_right]").first()
+        int count = Integer.parseInt(doc.select("div[class=tbtitle dropdown_parent dropdown_right]").first()
                 .select("div[class=text]").first().text().replaceFirst("\\D*(\\d*).*", "$1"));
 
-        for (int i = 1; i <= pages; i++) {
+        List<String> pages = new ArrayList<>();
+
+        for (int i = 1; i <= count; i++) {
             if (i != 1) {
-                referrer = chapter.getLink() + "page/" + i;
-                doc = JsoupHelper.getHTMLPageWithPost(referrer, post);
+                pages.add(chapter.getLink() + "page/" + i);
+            } else {
+                pages.add(referrer);
             }
+        }
 
-            String link = doc.select("img[class=open]").first().attr("src");
-            String extension = link.substring(link.length() - 3, link.length());
+        PageFanOut.resolve(pages, getImage(doc, referrer), new PageFanOut.PageResolver() {
 
-            images.add(new Image(link, referrer, extension));
-        }
+            @Override
+            public Image resolve(String pageUrl) throws Exception {
+                return getImage(JsoupHelper.getHTMLPageWithPost(pageUrl, post), pageUrl);
+            }
+        }, listener);
+    }
+
+    private Image getImage(Document doc, String referrer) {
+        String link = doc.select("img[class=open]").first().attr("src");
+        String extension = link.substring(link.length() - 3, link.length());
 
-        return images;
+        return new Image(link, referrer, extension);
     }
 
     @Override
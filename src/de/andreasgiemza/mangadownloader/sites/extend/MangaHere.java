@@ -27,7 +27,10 @@ import de.andreasgiemza.mangadownloader.data.Chapter;
 import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
-import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkCollector;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import de.andreasgiemza.mangadownloader.sites.StreamingSite;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import org.jsoup.nodes.Document;
@@ -38,7 +41,7 @@ import org.jsoup.select.Elements;
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public class MangaHere implements Site {
+public class MangaHere implements StreamingSite {
 
     private final String name;
     private final String url;
@@ -123,32 +126,46 @@ public class MangaHere implements Site {
 
     @Override
     public List<Image> getChapterImageLinks(Chapter chapter) throws Exception {
-        List<Image> images = new LinkedList<>();
+        return ImageLinkCollector.collect(this, chapter);
+    }
 
-        String referrer = chapter.getLink();
-        Document doc = JsoupHelper.getHTMLPage(referrer);
+    @Override
+    public void getChapterImageLinks(Chapter chapter, ImageLinkListener listener) throws Exception {
+        Document doc = JsoupHelper.getHTMLPage(chapter.getLink());
 
         Elements nav = doc.select("select[onchange=change_page(this)]").first()
                 .select("option");
 
+        List<String> pages = new ArrayList<>();
+
         for (Element page : nav) {
             if (page != nav.first()) {
-                referrer = page.attr("value");
+                String referrer = page.attr("value");
                 if (!referrer.startsWith("http://")) {
                     // TODO: CHECK THIS!
                     referrer = url + referrer;
                 }
-                doc = JsoupHelper.getHTMLPage(referrer);
+                pages.add(referrer);
+            } else {
+                pages.add(chapter.getLink());
             }
+        }
 
-            String link = doc.select("img[id=image]").first().attr("src");
-            String linkTemp = link.split("\\?v=")[0];
-            String extension = linkTemp.substring(linkTemp.length() - 3, linkTemp.length());
+        PageFanOut.resolve(pages, getImage(doc, chapter.getLink()), new PageFanOut.PageResolver() {
 
-            images.add(new Image(link, referrer, extension));
-        }
+            @Override
+            public Image resolve(String pageUrl) throws Exception {
+                return getImage(JsoupHelper.getHTMLPage(pageUrl), pageUrl);
+            }
+        }, listener);
+    }
+
+    private Image getImage(Document doc, String referrer) {
+        String link = doc.select("img[id=image]").first().attr("src");
+        String linkTemp = link.split("\\?v=")[0];
+        String extension = linkTemp.substring(linkTemp.length() - 3, linkTemp.length());
 
-        return images;
+        return new Image(link, referrer, extension);
     }
 
     @Override
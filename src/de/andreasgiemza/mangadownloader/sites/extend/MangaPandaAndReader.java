@@ -27,7 +27,10 @@ import de.andreasgiemza.mangadownloader.data.Chapter;
 import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
-import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkCollector;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import de.andreasgiemza.mangadownloader.sites.StreamingSite;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import org.jsoup.nodes.Document;
@@ -38,7 +41,7 @@ import org.jsoup.select.Elements;
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public class MangaPandaAndReader implements Site {
+public class MangaPandaAndReader implements StreamingSite {
 
     private final String name;
     private final String url;
@@ -93,29 +96,41 @@ public class MangaPandaAndReader implements Site {
 
     @Override
     public List<Image> getChapterImageLinks(Chapter chapter) throws Exception {
-        List<Image> images = new LinkedList<>();
+        return ImageLinkCollector.collect(this, chapter);
+    }
 
+    @Override
+    public void getChapterImageLinks(Chapter chapter, ImageLinkListener listener) throws Exception {
         String referrer = url + chapter.getLink();
         Document doc = JsoupHelper.getHTMLPage(referrer);
 
         Elements nav = doc.select("select[id=pageMenu]").first()
                 .select("option");
 
-        int pages = nav.size();
+        List<String> pages = new ArrayList<>();
 
-        for (int i = 0; i < pages; i++) {
+        for (int i = 0; i < nav.size(); i++) {
             if (i != 0) {
-                referrer = url + nav.get(i).attr("value");
-                doc = JsoupHelper.getHTMLPage(referrer);
+                pages.add(url + nav.get(i).attr("value"));
+            } else {
+                pages.add(referrer);
             }
+        }
 
-            String link = doc.select("img[id=img]").first().attr("src");
-            String extension = link.substring(link.length() - 3, link.length());
+        PageFanOut.resolve(pages, getImage(doc, referrer), new PageFanOut.PageResolver() {
 
-            images.add(new Image(link, referrer, extension));
-        }
+            @Override
+            public Image resolve(String pageUrl) throws Exception {
+                return getImage(JsoupHelper.getHTMLPage(pageUrl), pageUrl);
+            }
+        }, listener);
+    }
+
+    private Image getImage(Document doc, String referrer) {
+        String link = doc.select("img[id=img]").first().attr("src");
+        String extension = link.substring(link.length() - 3, link.length());
 
-        return images;
+        return new Image(link, referrer, extension);
     }
 
     @Override
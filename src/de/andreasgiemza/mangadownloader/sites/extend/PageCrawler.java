@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.sites.extend;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.andreasgiemza.mangadownloader.data.Manga;
+import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
+import de.andreasgiemza.mangadownloader.sites.Site;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jsoup.nodes.Document;
+
+/**
+ * Crawls the pages of a paginated manga list. The first page has to be
+ * loaded by the site to learn the number of pages, the remaining pages are
+ * loaded concurrently and merged in page order.
+ *
+ * Lists ordered newest first can be crawled for new mangas only. Pages are
+ * then loaded in batches and the crawl stops at the first page which only
+ * contains known mangas.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public final class PageCrawler {
+
+    public interface PageParser {
+
+        public String getPageUrl(int page);
+
+        public List<Manga> getMangas(Document doc) throws Exception;
+    }
+
+    public interface ProgressListener {
+
+        public void pageCrawled(Site site, int crawledPages, int pages);
+    }
+
+    private final static List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+
+    private PageCrawler() {
+    }
+
+    public static void addProgressListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeProgressListener(ProgressListener listener) {
+        listeners.remove(listener);
+    }
+
+    public static List<Manga> crawl(Site site, Document firstPage, int pages, int concurrency, PageParser parser) throws Exception {
+        List<Manga> mangas = new LinkedList<>(parser.getMangas(firstPage));
+        AtomicInteger crawledPages = new AtomicInteger(1);
+
+        firePageCrawled(site, crawledPages.get(), pages);
+
+        if (pages <= 1) {
+            return mangas;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(concurrency, pages - 1)),
+                new ThreadFactoryBuilder().setNameFormat(site.getName() + "-%d").setDaemon(true).build());
+        List<Future<List<Manga>>> futures = new LinkedList<>();
+
+        try {
+            for (int page = 2; page <= pages; page++) {
+                futures.add(submitPage(executor, site, page, pages, crawledPages, parser));
+            }
+
+            for (Future<List<Manga>> future : futures) {
+                mangas.addAll(getPage(future));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return mangas;
+    }
+
+    public static List<Manga> crawlNew(Site site, Document firstPage, int pages, int concurrency, PageParser parser, Set<String> knownLinks) throws Exception {
+        List<Manga> mangas = new LinkedList<>();
+        Set<String> newLinks = new HashSet<>();
+        AtomicInteger crawledPages = new AtomicInteger(1);
+
+        firePageCrawled(site, crawledPages.get(), pages);
+
+        if (!addNew(mangas, parser.getMangas(firstPage), knownLinks, newLinks) || pages <= 1) {
+            return mangas;
+        }
+
+        int batchSize = Math.max(1, Math.min(concurrency, pages - 1));
+        ExecutorService executor = Executors.newFixedThreadPool(batchSize,
+                new ThreadFactoryBuilder().setNameFormat(site.getName() + "-%d").setDaemon(true).build());
+
+        try {
+            for (int firstPageOfBatch = 2; firstPageOfBatch <= pages; firstPageOfBatch += batchSize) {
+                List<Future<List<Manga>>> futures = new LinkedList<>();
+
+                for (int page = firstPageOfBatch; page < firstPageOfBatch + batchSize && page <= pages; page++) {
+                    futures.add(submitPage(executor, site, page, pages, crawledPages, parser));
+                }
+
+                for (Future<List<Manga>> future : futures) {
+                    if (!addNew(mangas, getPage(future), knownLinks, newLinks)) {
+                        return mangas;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return mangas;
+    }
+
+    // Returns false if the page only contained known mangas
+    private static boolean addNew(List<Manga> mangas, List<Manga> page, Set<String> knownLinks, Set<String> newLinks) {
+        boolean found = false;
+
+        for (Manga manga : page) {
+            if (!knownLinks.contains(manga.getLink())) {
+                found = true;
+
+                // Mangas added while crawling push others onto the next page
+                if (newLinks.add(manga.getLink())) {
+                    mangas.add(manga);
+                }
+            }
+        }
+
+        return found;
+    }
+
+    private static Future<List<Manga>> submitPage(ExecutorService executor, final Site site, final int page, final int pages, final AtomicInteger crawledPages, final PageParser parser) {
+        return executor.submit(new Callable<List<Manga>>() {
+
+            @Override
+            public List<Manga> call() throws Exception {
+                List<Manga> result = parser.getMangas(JsoupHelper.getHTMLPage(parser.getPageUrl(page)));
+                firePageCrawled(site, crawledPages.incrementAndGet(), pages);
+
+                return result;
+            }
+        });
+    }
+
+    private static List<Manga> getPage(Future<List<Manga>> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+
+            throw ex;
+        }
+    }
+
+    private static void firePageCrawled(Site site, int crawledPages, int pages) {
+        for (ProgressListener listener : listeners) {
+            listener.pageCrawled(site, crawledPages, pages);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Andreas Giemza <andreas@giemza.net>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.andreasgiemza.mangadownloader.sites.extend;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.andreasgiemza.mangadownloader.data.Image;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Resolves the reader pages of a chapter concurrently, once the page links are
+ * known from the navigation of the first page. The resolved images are handed
+ * to the listener with their page index, so the listener gets them in order
+ * no matter which request finishes first.
+ *
+ * @author Andreas Giemza <andreas@giemza.net>
+ */
+public final class PageFanOut {
+
+    public interface PageResolver {
+
+        public Image resolve(String pageUrl) throws Exception;
+    }
+
+    private final static int MAX_PAGES_PER_HOST = 4;
+    private final static ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<>();
+    private final static ExecutorService executor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("PageFanOut-%d").setDaemon(true).build());
+
+    private PageFanOut() {
+    }
+
+    /**
+     * Hands the number of pages and the image of the first page, which the
+     * site loaded already for the navigation, to the listener and resolves
+     * the other pages.
+     */
+    public static void resolve(List<String> pageUrls, Image firstImage, PageResolver resolver, ImageLinkListener listener) throws Exception {
+        listener.imageCountResolved(pageUrls.size());
+
+        if (pageUrls.isEmpty()) {
+            return;
+        }
+
+        listener.imageLinkResolved(0, firstImage);
+
+        resolve(pageUrls, 1, resolver, listener);
+    }
+
+    private static void resolve(List<String> pageUrls, int fromIndex, PageResolver resolver, ImageLinkListener listener) throws Exception {
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Map<PageTask, Future<Void>> futures = new LinkedHashMap<>();
+
+        try {
+            for (int i = fromIndex; i < pageUrls.size() && failure.get() == null; i++) {
+                PageTask task = new PageTask(i, pageUrls.get(i), resolver, listener, failure);
+
+                task.semaphore.acquire();
+                futures.put(task, executor.submit(task));
+            }
+
+            for (Future<Void> future : futures.values()) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    break;
+                }
+            }
+        } finally {
+            for (Map.Entry<PageTask, Future<Void>> future : futures.entrySet()) {
+                if (future.getValue().cancel(true)) {
+                    future.getKey().release();
+                }
+            }
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static Semaphore getSemaphore(String pageUrl) {
+        String host;
+
+        try {
+            host = new URL(pageUrl).getHost();
+        } catch (MalformedURLException ex) {
+            host = pageUrl;
+        }
+
+        Semaphore semaphore = hosts.get(host);
+
+        if (semaphore == null) {
+            hosts.putIfAbsent(host, new Semaphore(MAX_PAGES_PER_HOST));
+            semaphore = hosts.get(host);
+        }
+
+        return semaphore;
+    }
+
+    private static class PageTask implements Callable<Void> {
+
+        private final int index;
+        private final String pageUrl;
+        private final PageResolver resolver;
+        private final ImageLinkListener listener;
+        private final AtomicReference<Exception> failure;
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PageTask(int index, String pageUrl, PageResolver resolver, ImageLinkListener listener, AtomicReference<Exception> failure) {
+            this.index = index;
+            this.pageUrl = pageUrl;
+            this.resolver = resolver;
+            this.listener = listener;
+            this.failure = failure;
+            this.semaphore = getSemaphore(pageUrl);
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                listener.imageLinkResolved(index, resolver.resolve(pageUrl));
+            } catch (Exception ex) {
+                failure.compareAndSet(null, ex);
+                throw ex;
+            } finally {
+                release();
+            }
+
+            return null;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+}
@@ -27,11 +27,15 @@ import de.andreasgiemza.mangadownloader.data.Chapter;
 import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
-import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.http.HostLimits;
+import de.andreasgiemza.mangadownloader.sites.IncrementalSite;
+import de.andreasgiemza.mangadownloader.sites.RateLimitedSite;
+import de.andreasgiemza.mangadownloader.sites.extend.PageCrawler;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -40,43 +44,64 @@ import org.jsoup.select.Elements;
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public class KissManga implements Site {
+public class KissManga implements RateLimitedSite, IncrementalSite {
 
     private final String name = "KissManga";
     private final String url = "http://kissmanga.com";
     private final List<String> language = Arrays.asList("English");
     private final Boolean watermarks = false;
 
+    private final HostLimits hostLimits = new HostLimits(1, 3, 2);
+    private final int listConcurrency = 2;
+
     @Override
     public List<Manga> getMangaList() throws Exception {
-        List<Manga> mangas = new LinkedList<>();
-
         Document doc = JsoupHelper.getHTMLPage(url + "/MangaList");
 
-        int numberOfPages = Integer.parseInt(doc.select("div[class=pagination pagination-left]").first()
+        return PageCrawler.crawl(this, doc, getNumberOfPages(doc), listConcurrency, getMangaListParser("/MangaList"));
+    }
+
+    @Override
+    public List<Manga> getNewMangaList(Set<String> knownLinks) throws Exception {
+        Document doc = JsoupHelper.getHTMLPage(url + "/MangaList/Newest");
+
+        return PageCrawler.crawlNew(this, doc, getNumberOfPages(doc), listConcurrency, getMangaListParser("/MangaList/Newest"), knownLinks);
+    }
+
+    private int getNumberOfPages(Document doc) {
+        return Integer.parseInt(doc.select("div[class=pagination pagination-left]").first()
                 .select("li").last().select("a").attr("page"));
+    }
+
+    private PageCrawler.PageParser getMangaListParser(final String listUrl) {
+        return new PageCrawler.PageParser() {
 
-        for (int page = 1; page <= numberOfPages; page++) {
-            if (page != 1) {
-                doc = JsoupHelper.getHTMLPage(url + "/MangaList?page=" + page);
+            @Override
+            public String getPageUrl(int page) {
+                return url + listUrl + "?page=" + page;
             }
 
-            Elements rows = doc.select("table[class=listing]").first().select("tr");
+            @Override
+            public List<Manga> getMangas(Document doc) {
+                List<Manga> mangas = new LinkedList<>();
 
-            for (Element row : rows) {
-                Element td = row.select("td").first();
+                Elements rows = doc.select("table[class=listing]").first().select("tr");
 
-                if (td == null) {
-                    continue;
-                }
+                for (Element row : rows) {
+                    Element td = row.select("td").first();
 
-                Element link = td.select("a").first();
+                    if (td == null) {
+                        continue;
+                    }
 
-                mangas.add(new Manga(link.attr("href"), link.text()));
-            }
-        }
+                    Element link = td.select("a").first();
+
+                    mangas.add(new Manga(link.attr("href"), link.text()));
+                }
 
-        return mangas;
+                return mangas;
+            }
+        };
     }
 
     @Override
@@ -154,4 +179,9 @@ public class KissManga implements Site {
     public Boolean hasWatermarks() {
         return watermarks;
     }
+
+    @Override
+    public HostLimits getHostLimits() {
+        return hostLimits;
+    }
 }
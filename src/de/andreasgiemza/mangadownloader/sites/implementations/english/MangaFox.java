@@ -27,7 +27,11 @@ import de.andreasgiemza.mangadownloader.data.Chapter;
 import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
-import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkCollector;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import de.andreasgiemza.mangadownloader.sites.StreamingSite;
+import de.andreasgiemza.mangadownloader.sites.extend.PageFanOut;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -39,7 +43,7 @@ import org.jsoup.select.Elements;
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public class MangaFox implements Site {
+public class MangaFox implements StreamingSite {
 
     private final String name = "Manga Fox";
     private final String url = "http://mangafox.me";
@@ -86,29 +90,41 @@ public class MangaFox implements Site {
 
     @Override
     public List<Image> getChapterImageLinks(Chapter chapter) throws Exception {
-        List<Image> images = new LinkedList<>();
+        return ImageLinkCollector.collect(this, chapter);
+    }
 
+    @Override
+    public void getChapterImageLinks(Chapter chapter, ImageLinkListener listener) throws Exception {
         String referrer = chapter.getLink().endsWith("1.html") ? chapter.getLink() : chapter.getLink() + "1.html";
         Document doc = JsoupHelper.getHTMLPage(referrer);
 
         Elements nav = doc.select("select[onchange=change_page(this)]").first()
                 .select("option");
 
-        int pages = nav.size() - 1;
+        List<String> pages = new ArrayList<>();
 
-        for (int i = 1; i <= pages; i++) {
+        for (int i = 1; i <= nav.size() - 1; i++) {
             if (i != 1) {
-                referrer = chapter.getLink().replace("1.html", "") + i + ".html";
-                doc = JsoupHelper.getHTMLPage(referrer);
+                pages.add(chapter.getLink().replace("1.html", "") + i + ".html");
+            } else {
+                pages.add(referrer);
             }
+        }
 
-            String link = doc.select("img[id=image]").first().attr("src");
-            String extension = link.substring(link.length() - 3, link.length());
+        PageFanOut.resolve(pages, getImage(doc, referrer), new PageFanOut.PageResolver() {
 
-            images.add(new Image(link, referrer, extension));
-        }
+            @Override
+            public Image resolve(String pageUrl) throws Exception {
+                return getImage(JsoupHelper.getHTMLPage(pageUrl), pageUrl);
+            }
+        }, listener);
+    }
+
+    private Image getImage(Document doc, String referrer) {
+        String link = doc.select("img[id=image]").first().attr("src");
+        String extension = link.substring(link.length() - 3, link.length());
 
-        return images;
+        return new Image(link, referrer, extension);
     }
 
     @Override
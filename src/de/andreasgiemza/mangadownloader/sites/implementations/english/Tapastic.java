@@ -30,6 +30,7 @@ import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
 import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.extend.PageCrawler;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -49,27 +50,34 @@ public class Tapastic implements Site {
     private final List<String> language = Arrays.asList("English");
     private final Boolean watermarks = false;
 
+    private final int listConcurrency = 4;
+
     @Override
     public List<Manga> getMangaList() throws Exception {
-        List<Manga> mangas = new LinkedList<>();
-
         Document doc = JsoupHelper.getHTMLPage(url + "/browse/list");
 
         int max = Integer.parseInt(doc.select("div[class^=g-pagination-wrap]").first().select("a[class=page-num paging-btn g-act]").last().text());
 
-        for (int i = 1; i <= max; i++) {
-            if (i != 1) {
-                doc = JsoupHelper.getHTMLPage(url + "/browse/list?pageNumber=" + i);
+        return PageCrawler.crawl(this, doc, max, listConcurrency, new PageCrawler.PageParser() {
+
+            @Override
+            public String getPageUrl(int page) {
+                return url + "/browse/list?pageNumber=" + page;
             }
 
-            Elements rows = doc.select("ul[class=page-list-wrap]").first().select("li");
+            @Override
+            public List<Manga> getMangas(Document doc) {
+                List<Manga> mangas = new LinkedList<>();
 
-            for (Element row : rows) {
-                mangas.add(new Manga(row.select("a[class=title]").first().attr("href"), row.select("a[class=title]").first().text()));
-            }
-        }
+                Elements rows = doc.select("ul[class=page-list-wrap]").first().select("li");
+
+                for (Element row : rows) {
+                    mangas.add(new Manga(row.select("a[class=title]").first().attr("href"), row.select("a[class=title]").first().text()));
+                }
 
-        return mangas;
+                return mangas;
+            }
+        });
     }
 
     @Override
@@ -27,10 +27,17 @@ import de.andreasgiemza.mangadownloader.data.Chapter;
 import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
-import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkCollector;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import de.andreasgiemza.mangadownloader.sites.IncrementalSite;
+import de.andreasgiemza.mangadownloader.sites.StreamingSite;
+import de.andreasgiemza.mangadownloader.sites.extend.PageCrawler;
+import de.andreasgiemza.mangadownloader.sites.extend.PageFanOut;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -39,19 +46,30 @@ import org.jsoup.select.Elements;
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public class Mangacow implements Site {
+public class Mangacow implements StreamingSite, IncrementalSite {
 
     private final String name = "Mangacow";
     private final String url = "http://mangacow.co/";
     private final List<String> language = Arrays.asList("English");
     private final Boolean watermarks = false;
 
+    private final int listConcurrency = 4;
+
     @Override
     public List<Manga> getMangaList() throws Exception {
-        List<Manga> mangas = new LinkedList<>();
-
         Document doc = JsoupHelper.getHTMLPage(url + "/manga-list/all/any/name-az/");
 
+        return PageCrawler.crawl(this, doc, getNumberOfPages(doc), listConcurrency, getMangaListParser("/manga-list/all/any/name-az/"));
+    }
+
+    @Override
+    public List<Manga> getNewMangaList(Set<String> knownLinks) throws Exception {
+        Document doc = JsoupHelper.getHTMLPage(url + "/manga-list/all/any/last-added/");
+
+        return PageCrawler.crawlNew(this, doc, getNumberOfPages(doc), listConcurrency, getMangaListParser("/manga-list/all/any/last-added/"), knownLinks);
+    }
+
+    private int getNumberOfPages(Document doc) {
         Element nav = doc.select("ul[class=pgg]").first();
 
         int pages = 1;
@@ -63,20 +81,31 @@ public class Mangacow implements Site {
             pages = Integer.parseInt(dataArray[dataArray.length - 1]);
         }
 
-        for (int i = 1; i <= pages; i++) {
-            if (i != 1) {
-                doc = JsoupHelper.getHTMLPage(url + "/manga-list/all/any/name-az/" + i + "/");
-            }
+        return pages;
+    }
 
-            Elements rows = doc.select("div[class=wpm_pag mng_lst tbn]").first().select("div[class^=nde]");
+    private PageCrawler.PageParser getMangaListParser(final String listUrl) {
+        return new PageCrawler.PageParser() {
 
-            for (Element row : rows) {
-                Element link = row.select("div[class=det]").first().select("a").first();
-                mangas.add(new Manga(link.attr("href"), link.text()));
+            @Override
+            public String getPageUrl(int page) {
+                return url + listUrl + page + "/";
             }
-        }
 
-        return mangas;
+            @Override
+            public List<Manga> getMangas(Document doc) {
+                List<Manga> mangas = new LinkedList<>();
+
+                Elements rows = doc.select("div[class=wpm_pag mng_lst tbn]").first().select("div[class^=nde]");
+
+                for (Element row : rows) {
+                    Element link = row.select("div[class=det]").first().select("a").first();
+                    mangas.add(new Manga(link.attr("href"), link.text()));
+                }
+
+                return mangas;
+            }
+        };
     }
 
     @Override
@@ -115,29 +144,41 @@ public class Mangacow implements Site {
 
     @Override
     public List<Image> getChapterImageLinks(Chapter chapter) throws Exception {
-        List<Image> images = new LinkedList<>();
+        return ImageLinkCollector.collect(this, chapter);
+    }
 
+    @Override
+    public void getChapterImageLinks(Chapter chapter, ImageLinkListener listener) throws Exception {
         String referrer = chapter.getLink();
         Document doc = JsoupHelper.getHTMLPage(referrer);
 
         Elements nav = doc.select("select[class=cbo_wpm_pag]").first()
                 .select("option");
 
-        int pages = nav.size();
+        List<String> pages = new ArrayList<>();
 
-        for (int i = 1; i <= pages; i++) {
+        for (int i = 1; i <= nav.size(); i++) {
             if (i != 1) {
-                referrer = chapter.getLink() + (i) + "/";
-                doc = JsoupHelper.getHTMLPage(referrer);
+                pages.add(chapter.getLink() + (i) + "/");
+            } else {
+                pages.add(referrer);
             }
+        }
 
-            String link = doc.select("div[class=prw]").first().select("img").attr("src");
-            String extension = link.substring(link.length() - 3, link.length());
+        PageFanOut.resolve(pages, getImage(doc, referrer), new PageFanOut.PageResolver() {
 
-            images.add(new Image(link, referrer, extension));
-        }
+            @Override
+            public Image resolve(String pageUrl) throws Exception {
+                return getImage(JsoupHelper.getHTMLPage(pageUrl), pageUrl);
+            }
+        }, listener);
+    }
+
+    private Image getImage(Document doc, String referrer) {
+        String link = doc.select("div[class=prw]").first().select("img").attr("src");
+        String extension = link.substring(link.length() - 3, link.length());
 
-        return images;
+        return new Image(link, referrer, extension);
     }
 
     @Override
@@ -27,7 +27,14 @@ import de.andreasgiemza.mangadownloader.data.Chapter;
 import de.andreasgiemza.mangadownloader.data.Image;
 import de.andreasgiemza.mangadownloader.data.Manga;
 import de.andreasgiemza.mangadownloader.helpers.JsoupHelper;
-import de.andreasgiemza.mangadownloader.sites.Site;
+import de.andreasgiemza.mangadownloader.http.HostLimits;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkCollector;
+import de.andreasgiemza.mangadownloader.sites.ImageLinkListener;
+import de.andreasgiemza.mangadownloader.sites.RateLimitedSite;
+import de.andreasgiemza.mangadownloader.sites.StreamingSite;
+import de.andreasgiemza.mangadownloader.sites.extend.PageCrawler;
+import de.andreasgiemza.mangadownloader.sites.extend.PageFanOut;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -39,42 +46,49 @@ import org.jsoup.select.Elements;
  *
  * @author Andreas Giemza <andreas@giemza.net>
  */
-public class Batoto implements Site {
+public class Batoto implements StreamingSite, RateLimitedSite {
 
     private final String name = "Batoto";
     private final String url = "https://bato.to";
     private final List<String> language = Arrays.asList("International");
     private final Boolean watermarks = false;
 
+    private final HostLimits hostLimits = new HostLimits(2, 4, 2);
     private final int loadCount = 1000;
+    private final int listConcurrency = 2;
 
     @Override
     public List<Manga> getMangaList() throws Exception {
-        List<Manga> mangas = new LinkedList<>();
-
         Document doc = JsoupHelper.getHTMLPage(url + "/comic/_/comics/?per_page=" + loadCount + "&st=0");
 
         int max = Integer.parseInt(doc.select("li[class=last]").first().select("a").first().attr("href").split("st=")[1]);
 
-        for (int i = 0; i <= max; i += loadCount) {
-            if (i != 0) {
-                doc = JsoupHelper.getHTMLPage(url + "/comic/_/comics/?per_page=" + loadCount + "&st=" + i);
+        return PageCrawler.crawl(this, doc, max / loadCount + 1, listConcurrency, new PageCrawler.PageParser() {
+
+            @Override
+            public String getPageUrl(int page) {
+                return url + "/comic/_/comics/?per_page=" + loadCount + "&st=" + (page - 1) * loadCount;
             }
 
-            Elements rows = doc.select("table[class=ipb_table topic_list hover_rows]").first().select("tr");
+            @Override
+            public List<Manga> getMangas(Document doc) {
+                List<Manga> mangas = new LinkedList<>();
+
+                Elements rows = doc.select("table[class=ipb_table topic_list hover_rows]").first().select("tr");
+
+                for (Element row : rows) {
+                    Elements cols = row.select("td");
 
-            for (Element row : rows) {
-                Elements cols = row.select("td");
+                    if (cols.size() != 7) {
+                        continue;
+                    }
 
-                if (cols.size() != 7) {
-                    continue;
+                    mangas.add(new Manga(cols.get(1).select("a").first().attr("href"), cols.get(1).text()));
                 }
 
-                mangas.add(new Manga(cols.get(1).select("a").first().attr("href"), cols.get(1).text()));
+                return mangas;
             }
-        }
-
-        return mangas;
+        });
     }
 
     @Override
@@ -106,30 +120,44 @@ public class Batoto implements Site {
 
     @Override
     public List<Image> getChapterImageLinks(Chapter chapter) throws Exception {
-        List<Image> images = new LinkedList<>();
+        return ImageLinkCollector.collect(this, chapter);
+    }
 
+    @Override
+    public void getChapterImageLinks(Chapter chapter, ImageLinkListener listener) throws Exception {
         String referrer = chapter.getLink() + "?supress_webtoon=t";
         Document doc = JsoupHelper.getHTMLPage(referrer);
 
         // Get pages linkes
-        Elements pages = doc.select("div[class=moderation_bar rounded clear]").first()
+        Elements nav = doc.select("div[class=moderation_bar rounded clear]").first()
                 .select("ul").first()
                 .select("li").get(3)
                 .select("option");
 
-        for (int i = 0; i < pages.size(); i++) {
+        List<String> pages = new ArrayList<>();
+
+        for (int i = 0; i < nav.size(); i++) {
             if (i != 0) {
-                referrer = pages.get(i).attr("value") + "?supress_webtoon=t";
-                doc = JsoupHelper.getHTMLPage(referrer);
+                pages.add(nav.get(i).attr("value") + "?supress_webtoon=t");
+            } else {
+                pages.add(referrer);
             }
+        }
 
-            String link = doc.select("img[id=comic_page]").first().attr("src");
-            String extension = link.substring(link.length() - 3, link.length());
+        PageFanOut.resolve(pages, getImage(doc, referrer), new PageFanOut.PageResolver() {
 
-            images.add(new Image(link, referrer, extension));
-        }
+            @Override
+            public Image resolve(String pageUrl) throws Exception {
+                return getImage(JsoupHelper.getHTMLPage(pageUrl), pageUrl);
+            }
+        }, listener);
+    }
 
-        return images;
+    private Image getImage(Document doc, String referrer) {
+        String link = doc.select("img[id=comic_page]").first().attr("src");
+        String extension = link.substring(link.length() - 3, link.length());
+
+        return new Image(link, referrer, extension);
     }
 
     @Override
@@ -151,4 +179,9 @@ public class Batoto implements Site {
     public Boolean hasWatermarks() {
         return watermarks;
     }
+
+    @Override
+    public HostLimits getHostLimits() {
+        return hostLimits;
+    }
 }